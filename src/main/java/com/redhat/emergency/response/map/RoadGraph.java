@@ -0,0 +1,502 @@
+package com.redhat.emergency.response.map;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Road network held in primitive arrays: node coordinates, and the outgoing edges of every node in compressed sparse
+ * row form. Edge weights are travel times in seconds. Routes are computed with A*, using the straight-line travel time
+ * at the highest speed of the network as heuristic.
+ * <p>
+ * Nearest node lookups use a grid of {@value #CELL_SIZE} degree cells.
+ */
+final class RoadGraph {
+
+    static final double CELL_SIZE = 0.01;
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    /**
+     * Speed in km/h of the drivable highway types, other ways are ignored.
+     */
+    private static final Map<String, Double> SPEEDS = Map.ofEntries(
+            Map.entry("motorway", 110d), Map.entry("motorway_link", 60d),
+            Map.entry("trunk", 90d), Map.entry("trunk_link", 50d),
+            Map.entry("primary", 70d), Map.entry("primary_link", 40d),
+            Map.entry("secondary", 60d), Map.entry("secondary_link", 40d),
+            Map.entry("tertiary", 50d), Map.entry("tertiary_link", 30d),
+            Map.entry("unclassified", 40d), Map.entry("residential", 30d),
+            Map.entry("living_street", 10d), Map.entry("service", 20d),
+            Map.entry("road", 30d));
+
+    private static final double MAX_SPEED = SPEEDS.values().stream().mapToDouble(s -> s).max().orElseThrow() / 3.6;
+
+    private final double[] lat;
+
+    private final double[] lon;
+
+    /**
+     * Outgoing edges of node {@code n} are {@code firstEdge[n]} to {@code firstEdge[n + 1] - 1}.
+     */
+    private final int[] firstEdge;
+
+    private final int[] edgeTarget;
+
+    private final float[] edgeWeight;
+
+    private final Map<Long, int[]> cells = new HashMap<>();
+
+    /**
+     * Search state of the routes computed on each thread, reused from one route to the next.
+     */
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(nodeCount()));
+
+    private RoadGraph(double[] lat, double[] lon, int[] edgeSource, int[] edgeTarget, float[] edgeWeight, int edgeCount) {
+        this.lat = lat;
+        this.lon = lon;
+        int nodeCount = lat.length;
+        this.firstEdge = new int[nodeCount + 1];
+        this.edgeTarget = new int[edgeCount];
+        this.edgeWeight = new float[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            firstEdge[edgeSource[e] + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            firstEdge[n + 1] += firstEdge[n];
+        }
+        int[] next = Arrays.copyOf(firstEdge, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = next[edgeSource[e]]++;
+            this.edgeTarget[slot] = edgeTarget[e];
+            this.edgeWeight[slot] = edgeWeight[e];
+        }
+        Map<Long, IntList> cellNodes = new HashMap<>();
+        for (int n = 0; n < nodeCount; n++) {
+            cellNodes.computeIfAbsent(cell(lat[n], lon[n]), k -> new IntList()).add(n);
+        }
+        cellNodes.forEach((cell, nodes) -> cells.put(cell, nodes.toArray()));
+    }
+
+    /**
+     * Reads the drivable ways of an OpenStreetMap XML extract. Nodes must precede the ways, as in the extracts produced
+     * by the usual tools.
+     */
+    static RoadGraph fromOsm(InputStream osm) throws IOException {
+        Map<Long, Integer> osmIds = new HashMap<>();
+        DoubleList osmLat = new DoubleList();
+        DoubleList osmLon = new DoubleList();
+        IntList wayNodes = new IntList();
+        IntList edgeSource = new IntList();
+        IntList edgeTarget = new IntList();
+        FloatList edgeWeight = new FloatList();
+        try {
+            XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(osm);
+            String highway = null;
+            String oneway = null;
+            boolean inWay = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "node":
+                            osmIds.put(Long.parseLong(reader.getAttributeValue(null, "id")), osmLat.size());
+                            osmLat.add(Double.parseDouble(reader.getAttributeValue(null, "lat")));
+                            osmLon.add(Double.parseDouble(reader.getAttributeValue(null, "lon")));
+                            break;
+                        case "way":
+                            inWay = true;
+                            highway = null;
+                            oneway = null;
+                            wayNodes.clear();
+                            break;
+                        case "nd":
+                            Integer node = inWay ? osmIds.get(Long.parseLong(reader.getAttributeValue(null, "ref"))) : null;
+                            if (node != null) {
+                                wayNodes.add(node);
+                            }
+                            break;
+                        case "tag":
+                            if (inWay && "highway".equals(reader.getAttributeValue(null, "k"))) {
+                                highway = reader.getAttributeValue(null, "v");
+                            } else if (inWay && "oneway".equals(reader.getAttributeValue(null, "k"))) {
+                                oneway = reader.getAttributeValue(null, "v");
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName())) {
+                    inWay = false;
+                    Double speed = highway == null ? null : SPEEDS.get(highway);
+                    if (speed == null) {
+                        continue;
+                    }
+                    boolean reverse = "-1".equals(oneway);
+                    boolean forward = !reverse;
+                    boolean backward = reverse || !("yes".equals(oneway) || "true".equals(oneway) || "1".equals(oneway)
+                            || highway.startsWith("motorway"));
+                    for (int i = 1; i < wayNodes.size(); i++) {
+                        int from = wayNodes.get(i - 1);
+                        int to = wayNodes.get(i);
+                        float seconds = (float) (distance(osmLat.get(from), osmLon.get(from), osmLat.get(to), osmLon.get(to)) / (speed / 3.6));
+                        if (forward) {
+                            edgeSource.add(from);
+                            edgeTarget.add(to);
+                            edgeWeight.add(seconds);
+                        }
+                        if (backward) {
+                            edgeSource.add(to);
+                            edgeTarget.add(from);
+                            edgeWeight.add(seconds);
+                        }
+                    }
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Invalid OpenStreetMap file", e);
+        }
+
+        // keep only the nodes on drivable ways
+        int[] compact = new int[osmLat.size()];
+        Arrays.fill(compact, -1);
+        DoubleList lat = new DoubleList();
+        DoubleList lon = new DoubleList();
+        for (int e = 0; e < edgeSource.size(); e++) {
+            for (int node : new int[]{edgeSource.get(e), edgeTarget.get(e)}) {
+                if (compact[node] < 0) {
+                    compact[node] = lat.size();
+                    lat.add(osmLat.get(node));
+                    lon.add(osmLon.get(node));
+                }
+            }
+        }
+        int[] sources = edgeSource.toArray();
+        int[] targets = edgeTarget.toArray();
+        for (int e = 0; e < sources.length; e++) {
+            sources[e] = compact[sources[e]];
+            targets[e] = compact[targets[e]];
+        }
+        return new RoadGraph(lat.toArray(), lon.toArray(), sources, targets, edgeWeight.toArray(), sources.length);
+    }
+
+    int nodeCount() {
+        return lat.length;
+    }
+
+    int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    double lat(int node) {
+        return lat[node];
+    }
+
+    double lon(int node) {
+        return lon[node];
+    }
+
+    /**
+     * @return the node closest to the location, or -1 if there is no node within {@code maxCells} cells
+     */
+    int nearest(double latitude, double longitude, int maxCells) {
+        int cellLat = (int) Math.floor(latitude / CELL_SIZE);
+        int cellLon = (int) Math.floor(longitude / CELL_SIZE);
+        int nearest = -1;
+        int nearestRing = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxCells; ring++) {
+            for (int i = -ring; i <= ring; i++) {
+                for (int j = -ring; j <= ring; j++) {
+                    if (Math.abs(i) != ring && Math.abs(j) != ring) {
+                        continue;
+                    }
+                    int[] nodes = cells.get(cellKey(cellLat + i, cellLon + j));
+                    if (nodes == null) {
+                        continue;
+                    }
+                    for (int node : nodes) {
+                        double d = distance(latitude, longitude, lat[node], lon[node]);
+                        if (d < nearestDistance) {
+                            nearestDistance = d;
+                            nearest = node;
+                        }
+                    }
+                }
+            }
+            // a node in the next ring can still be closer than one found in this ring
+            if (nearest >= 0 && nearestRing < 0) {
+                nearestRing = ring;
+            } else if (nearestRing >= 0) {
+                break;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @return the nodes of the fastest route, from {@code from} to {@code to} included, or null if there is no route
+     */
+    int[] route(int from, int to) {
+        Search search = searches.get();
+        search.start();
+        double targetLat = lat[to];
+        double targetLon = lon[to];
+
+        // stale heap entries are skipped once their node is settled
+        search.reach(from, 0, -1);
+        search.open.add(distance(lat[from], lon[from], targetLat, targetLon) / MAX_SPEED, from);
+        while (!search.open.isEmpty()) {
+            int node = search.open.poll();
+            if (search.isSettled(node)) {
+                continue;
+            }
+            if (node == to) {
+                break;
+            }
+            search.settle(node);
+            float nodeCost = search.cost[node];
+            for (int e = firstEdge[node]; e < firstEdge[node + 1]; e++) {
+                int target = edgeTarget[e];
+                float c = nodeCost + edgeWeight[e];
+                if (!search.isSettled(target) && c < search.cost(target)) {
+                    search.reach(target, c, node);
+                    search.open.add(c + distance(lat[target], lon[target], targetLat, targetLon) / MAX_SPEED, target);
+                }
+            }
+        }
+        if (from != to && search.cost(to) == Float.MAX_VALUE) {
+            return null;
+        }
+        int length = 0;
+        for (int node = to; node != -1; node = search.previous[node]) {
+            length++;
+        }
+        int[] nodes = new int[length];
+        for (int node = to, i = length - 1; node != -1; node = search.previous[node], i--) {
+            nodes[i] = node;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the great-circle distance in meters
+     */
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static long cell(double latitude, double longitude) {
+        return cellKey((int) Math.floor(latitude / CELL_SIZE), (int) Math.floor(longitude / CELL_SIZE));
+    }
+
+    private static long cellKey(int cellLat, int cellLon) {
+        return ((long) cellLat << 32) | (cellLon & 0xffffffffL);
+    }
+
+    /**
+     * Costs and predecessors of the nodes reached by a search. Instead of clearing the arrays before every search, the
+     * entries of a node are only valid when its stamp is the generation of the current search.
+     */
+    private static final class Search {
+
+        private final float[] cost;
+
+        private final int[] previous;
+
+        private final int[] reached;
+
+        private final int[] settled;
+
+        private final Heap open = new Heap();
+
+        private int generation;
+
+        private Search(int nodeCount) {
+            cost = new float[nodeCount];
+            previous = new int[nodeCount];
+            reached = new int[nodeCount];
+            settled = new int[nodeCount];
+        }
+
+        void start() {
+            open.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(reached, 0);
+                Arrays.fill(settled, 0);
+                generation = 1;
+            }
+        }
+
+        float cost(int node) {
+            return reached[node] == generation ? cost[node] : Float.MAX_VALUE;
+        }
+
+        void reach(int node, float c, int from) {
+            reached[node] = generation;
+            cost[node] = c;
+            previous[node] = from;
+        }
+
+        boolean isSettled(int node) {
+            return settled[node] == generation;
+        }
+
+        void settle(int node) {
+            settled[node] = generation;
+        }
+    }
+
+    /**
+     * Binary min-heap of nodes by estimate, in primitive arrays.
+     */
+    private static final class Heap {
+
+        private double[] keys = new double[64];
+
+        private int[] nodes = new int[64];
+
+        private int size;
+
+        void add(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        /**
+         * @return the node with the lowest estimate
+         */
+        int poll() {
+            int first = nodes[0];
+            size--;
+            double key = keys[size];
+            int node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            return first;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleList {
+
+        private double[] values = new double[16];
+
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class FloatList {
+
+        private float[] values = new float[16];
+
+        private int size;
+
+        void add(float value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        float[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
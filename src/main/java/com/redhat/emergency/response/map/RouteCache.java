@@ -0,0 +1,230 @@
+package com.redhat.emergency.response.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.repository.Configuration;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.json.JsonArray;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional cache of route legs, as the coordinates of the road nodes along the leg. Legs are keyed on the grid cells of
+ * {@code cell-size} degrees of their start and end, so missions of the same incident going to the same destination
+ * share the leg. Entries are evicted after {@code ttl} ms, or in LRU order beyond {@code max-entries}.
+ * <p>
+ * When {@code shared}, legs are also written to a grid cache with the same lifespan, so that a leg computed by one
+ * node is reused by the others until it expires in the grid.
+ */
+@ApplicationScoped
+public class RouteCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteCache.class);
+
+    @ConfigProperty(name = "mission.route-planner.cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "mission.route-planner.cache.cell-size", defaultValue = "0.001")
+    double cellSize;
+
+    @ConfigProperty(name = "mission.route-planner.cache.max-entries", defaultValue = "1000")
+    int maxEntries;
+
+    @ConfigProperty(name = "mission.route-planner.cache.ttl", defaultValue = "600000")
+    long ttl;
+
+    @ConfigProperty(name = "mission.route-planner.cache.shared", defaultValue = "false")
+    boolean shared;
+
+    @ConfigProperty(name = "infinispan.cache.name.route", defaultValue = "route")
+    String cacheName;
+
+    @Inject
+    RemoteCacheManager cacheManager;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private Map<String, CachedLeg> legs;
+
+    RemoteCache<String, String> routeCache;
+
+    void onStart(@Observes StartupEvent e) {
+        if (!enabled) {
+            return;
+        }
+        log.info("Caching route legs for " + ttl + " ms, with max entries " + maxEntries + " and cell size " + cellSize);
+        legs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLeg> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (shared) {
+            log.info("Creating remote cache '" + cacheName + "'");
+            Configuration configuration = Configuration.fromConfig("route", cacheName);
+            routeCache = cacheManager.administration().getOrCreateCache(cacheName, configuration);
+        }
+    }
+
+    public boolean isEnabled() {
+        return legs != null;
+    }
+
+    /**
+     * @return the key of the leg between the grid cells of the two locations
+     */
+    String key(double fromLat, double fromLon, double toLat, double toLon) {
+        return cell(fromLat) + ":" + cell(fromLon) + ":" + cell(toLat) + ":" + cell(toLon);
+    }
+
+    /**
+     * Looks the leg up in the local cache only, without waiting for the grid. A leg computed after a miss is still
+     * written to the grid cache by {@link #put}.
+     *
+     * @return the coordinates of the leg, as latitude, longitude pairs, or null
+     */
+    double[] get(String key) {
+        if (legs == null) {
+            return null;
+        }
+        return count(local(key, System.currentTimeMillis()));
+    }
+
+    /**
+     * Looks the leg up in the local cache, then in the grid cache when shared. The grid is read asynchronously, and a
+     * leg that cannot be read from the grid is a miss: the returned future does not fail.
+     *
+     * @return the coordinates of the leg, as latitude, longitude pairs, or null
+     */
+    CompletableFuture<double[]> getAsync(String key) {
+        if (legs == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long now = System.currentTimeMillis();
+        CachedLeg leg = local(key, now);
+        if (leg != null || routeCache == null) {
+            return CompletableFuture.completedFuture(count(leg));
+        }
+        return routeCache.getWithMetadataAsync(key).thenApply(value -> {
+            CachedLeg shared = value == null ? null : fromJson(value.getValue(), expires(value, now));
+            if (shared != null) {
+                synchronized (this) {
+                    legs.put(key, shared);
+                }
+            }
+            return count(shared);
+        }).exceptionally(t -> {
+            log.warn("Exception reading route leg " + key + " from the grid", t);
+            return count(null);
+        });
+    }
+
+    void put(String key, double[] coordinates) {
+        if (legs == null) {
+            return;
+        }
+        synchronized (this) {
+            legs.put(key, new CachedLeg(coordinates, System.currentTimeMillis() + ttl));
+        }
+        if (routeCache != null) {
+            routeCache.putAsync(key, toJson(coordinates), ttl, TimeUnit.MILLISECONDS).exceptionally(t -> {
+                log.warn("Exception caching route leg " + key, t);
+                return null;
+            });
+        }
+    }
+
+    @Gauge(name = "routeCacheHits", unit = MetricUnits.NONE, description = "Route legs served by the route cache")
+    public long hits() {
+        return hits.get();
+    }
+
+    @Gauge(name = "routeCacheMisses", unit = MetricUnits.NONE, description = "Route legs not found in the route cache")
+    public long misses() {
+        return misses.get();
+    }
+
+    @Gauge(name = "routeCacheSize", unit = MetricUnits.NONE, description = "Route legs held in the local route cache")
+    public synchronized long size() {
+        return legs == null ? 0 : legs.size();
+    }
+
+    private synchronized CachedLeg local(String key, long now) {
+        CachedLeg leg = legs.get(key);
+        if (leg != null && leg.expires <= now) {
+            legs.remove(key);
+            return null;
+        }
+        return leg;
+    }
+
+    private double[] count(CachedLeg leg) {
+        if (leg == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return leg.coordinates;
+    }
+
+    /**
+     * A leg read from the grid expires locally with the grid entry, not {@code ttl} ms after it is read.
+     */
+    private long expires(MetadataValue<?> value, long now) {
+        if (value.getCreated() < 0 || value.getLifespan() < 0) {
+            return now + ttl;
+        }
+        return Math.min(now + ttl, value.getCreated() + TimeUnit.SECONDS.toMillis(value.getLifespan()));
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellSize);
+    }
+
+    private static String toJson(double[] coordinates) {
+        JsonArray json = new JsonArray();
+        for (double coordinate : coordinates) {
+            json.add(coordinate);
+        }
+        return json.encode();
+    }
+
+    private static CachedLeg fromJson(String json, long expires) {
+        if (json == null) {
+            return null;
+        }
+        JsonArray array = new JsonArray(json);
+        double[] coordinates = new double[array.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = array.getDouble(i);
+        }
+        return new CachedLeg(coordinates, expires);
+    }
+
+    private static final class CachedLeg {
+
+        private final double[] coordinates;
+
+        private final long expires;
+
+        private CachedLeg(double[] coordinates, long expires) {
+            this.coordinates = coordinates;
+            this.expires = expires;
+        }
+    }
+}
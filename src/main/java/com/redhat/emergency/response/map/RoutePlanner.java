@@ -1,18 +1,211 @@
 package com.redhat.emergency.response.map;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Location;
 import com.redhat.emergency.response.model.MissionStep;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Plans the route of a mission on the road network read from the OpenStreetMap extract {@code mission.route-planner.graph}.
+ * Without a road network, or when a location is not within {@code snap-cells} grid cells of a road, there are no
+ * directions.
+ * <p>
+ * The leg from the incident to the destination is shared by the missions of an incident, it is looked up in the
+ * {@link RouteCache} before being computed. {@link #getDirections} only looks it up in the local cache, so that it never
+ * waits for the grid, {@link #getDirectionsAsync} also reads the shared cache.
+ * <p>
+ * With {@code async.enabled}, routes can also be computed with {@link #getDirectionsAsync} on a pool of
+ * {@code async.threads} threads, which holds at most {@code async.queue-size} waiting routes.
+ */
 @ApplicationScoped
 public class RoutePlanner {
 
+    private static final Logger log = LoggerFactory.getLogger(RoutePlanner.class);
+
+    @ConfigProperty(name = "mission.route-planner.graph")
+    Optional<String> graphFile;
+
+    @ConfigProperty(name = "mission.route-planner.snap-cells", defaultValue = "5")
+    int snapCells;
+
+    @ConfigProperty(name = "mission.route-planner.async.enabled", defaultValue = "false")
+    boolean async;
+
+    @ConfigProperty(name = "mission.route-planner.async.threads", defaultValue = "2")
+    int asyncThreads;
+
+    @ConfigProperty(name = "mission.route-planner.async.queue-size", defaultValue = "100")
+    int asyncQueueSize;
+
+    @ConfigProperty(name = "mission.route-planner.async.timeout", defaultValue = "5000")
+    long asyncTimeout;
+
+    @Inject
+    RouteCache routeCache;
+
+    private RoadGraph graph;
+
+    private ThreadPoolExecutor executor;
+
+    void onStart(@Observes StartupEvent e) {
+        graphFile.ifPresent(file -> {
+            long start = System.currentTimeMillis();
+            try (InputStream in = Files.newInputStream(Paths.get(file))) {
+                graph = RoadGraph.fromOsm(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot read road network " + file, ex);
+            }
+            log.info("Road network " + file + " read in " + (System.currentTimeMillis() - start) + " ms: "
+                    + graph.nodeCount() + " nodes, " + graph.edgeCount() + " edges");
+        });
+        if (async) {
+            AtomicInteger threads = new AtomicInteger();
+            executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(asyncQueueSize), r -> {
+                        Thread thread = new Thread(r, "route-planner-" + threads.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent e) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isAsync() {
+        return executor != null;
+    }
+
+    void graph(RoadGraph graph) {
+        this.graph = graph;
+    }
 
     public List<MissionStep> getDirections(Location origin, Location destination, Location waypoint) {
-        return new ArrayList<>();
+        if (graph == null) {
+            return new ArrayList<>();
+        }
+        return getDirections(origin, destination, waypoint, routeCache.get(legKey(waypoint, destination)));
+    }
+
+    /**
+     * @param cachedLeg the cached leg from the waypoint to the destination, or null to compute it
+     */
+    private List<MissionStep> getDirections(Location origin, Location destination, Location waypoint, double[] cachedLeg) {
+        int from = graph.nearest(origin.getLatitude(), origin.getLongitude(), snapCells);
+        int via = graph.nearest(waypoint.getLatitude(), waypoint.getLongitude(), snapCells);
+        if (from < 0 || via < 0) {
+            log.warn("No road close to the locations of the mission, no directions");
+            return new ArrayList<>();
+        }
+        double[] toWaypoint = coordinates(graph.route(from, via));
+        double[] toDestination = toDestination(via, waypoint, destination, cachedLeg);
+        if (toWaypoint == null || toDestination == null) {
+            log.warn("No route between the locations of the mission, no directions");
+            return new ArrayList<>();
+        }
+        List<MissionStep> steps = new ArrayList<>((toWaypoint.length + toDestination.length) / 2 + 2);
+        addSteps(steps, toWaypoint);
+        steps.add(MissionStep.builder(waypoint.getLatitude(), waypoint.getLongitude()).wayPoint(true).build());
+        addSteps(steps, toDestination);
+        steps.add(MissionStep.builder(destination.getLatitude(), destination.getLongitude()).destination(true).build());
+        return steps;
+    }
+
+    /**
+     * Computes the directions on the route planner pool, once the cached leg is read without holding a thread of the
+     * pool. If the pool is full, or the route takes longer than {@code async.timeout} ms, the directions are a straight
+     * line from the origin through the waypoint to the destination.
+     */
+    public Uni<List<MissionStep>> getDirectionsAsync(Location origin, Location destination, Location waypoint) {
+        if (graph == null) {
+            return Uni.createFrom().item(new ArrayList<>());
+        }
+        List<MissionStep> straightLine = straightLine(origin, destination, waypoint);
+        CompletableFuture<List<MissionStep>> directions = routeCache.getAsync(legKey(waypoint, destination))
+                .thenApplyAsync(leg -> getDirections(origin, destination, waypoint, leg), executor)
+                .handle((steps, t) -> {
+                    Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+                    if (cause instanceof RejectedExecutionException) {
+                        log.warn("Route planner queue is full, using a straight line");
+                        return straightLine;
+                    }
+                    if (t != null) {
+                        throw new CompletionException(cause);
+                    }
+                    return steps;
+                });
+        return Uni.createFrom().completionStage(directions.completeOnTimeout(straightLine, asyncTimeout, TimeUnit.MILLISECONDS));
+    }
+
+    private List<MissionStep> straightLine(Location origin, Location destination, Location waypoint) {
+        List<MissionStep> steps = new ArrayList<>(3);
+        steps.add(MissionStep.builder(origin.getLatitude(), origin.getLongitude()).build());
+        steps.add(MissionStep.builder(waypoint.getLatitude(), waypoint.getLongitude()).wayPoint(true).build());
+        steps.add(MissionStep.builder(destination.getLatitude(), destination.getLongitude()).destination(true).build());
+        return steps;
+    }
+
+    private String legKey(Location waypoint, Location destination) {
+        return routeCache.key(waypoint.getLatitude(), waypoint.getLongitude(), destination.getLatitude(), destination.getLongitude());
+    }
+
+    private double[] toDestination(int via, Location waypoint, Location destination, double[] cachedLeg) {
+        if (cachedLeg != null) {
+            return cachedLeg;
+        }
+        int to = graph.nearest(destination.getLatitude(), destination.getLongitude(), snapCells);
+        if (to < 0) {
+            return null;
+        }
+        double[] leg = coordinates(graph.route(via, to));
+        if (leg != null) {
+            routeCache.put(legKey(waypoint, destination), leg);
+        }
+        return leg;
+    }
+
+    private double[] coordinates(int[] route) {
+        if (route == null) {
+            return null;
+        }
+        double[] coordinates = new double[route.length * 2];
+        for (int i = 0; i < route.length; i++) {
+            coordinates[2 * i] = graph.lat(route[i]);
+            coordinates[2 * i + 1] = graph.lon(route[i]);
+        }
+        return coordinates;
+    }
+
+    private void addSteps(List<MissionStep> steps, double[] coordinates) {
+        for (int i = 0; i < coordinates.length; i += 2) {
+            steps.add(MissionStep.builder(coordinates[i], coordinates[i + 1]).build());
+        }
     }
 
 }
@@ -0,0 +1,28 @@
+package com.redhat.emergency.response.model;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads a coordinate like a primitive double, except that a null coordinate is NaN rather than 0.0, so that it is
+ * handled like a missing coordinate.
+ */
+class CoordinateDeserializer extends StdDeserializer<Double> {
+
+    CoordinateDeserializer() {
+        super(Double.TYPE);
+    }
+
+    @Override
+    public Double deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return _parseDoublePrimitive(p, ctxt);
+    }
+
+    @Override
+    public Double getNullValue(DeserializationContext ctxt) {
+        return Double.NaN;
+    }
+}
@@ -1,25 +1,23 @@
 package com.redhat.emergency.response.model;
 
-import java.math.BigDecimal;
-
 public class Location {
 
-    private BigDecimal latitude;
+    private double latitude;
 
-    private BigDecimal longitude;
+    private double longitude;
 
-    public static Location of(BigDecimal latitude, BigDecimal longitude) {
+    public static Location of(double latitude, double longitude) {
         Location location = new Location();
         location.latitude = latitude;
         location.longitude = longitude;
         return location;
     }
 
-    public BigDecimal getLatitude() {
+    public double getLatitude() {
         return latitude;
     }
 
-    public BigDecimal getLongitude() {
+    public double getLongitude() {
         return longitude;
     }
 }
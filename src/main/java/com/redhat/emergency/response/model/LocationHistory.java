@@ -0,0 +1,257 @@
+package com.redhat.emergency.response.model;
+
+import java.util.AbstractList;
+
+/**
+ * Responder location history backed by primitive arrays used as a ring buffer.
+ * <p>
+ * The history grows until it reaches its capacity; after that every new point overwrites the oldest one, so the
+ * memory and the encoded size of a mission stay bounded however long the mission runs.
+ * {@link ResponderLocationHistory} instances are only created when elements are accessed through the {@link java.util.List} view.
+ */
+public class LocationHistory extends AbstractList<ResponderLocationHistory> {
+
+    private static final int INITIAL_SIZE = 16;
+
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private double[] lat = new double[0];
+
+    private double[] lon = new double[0];
+
+    private long[] timestamp = new long[0];
+
+    private int head = 0;
+
+    private int size = 0;
+
+    private int capacity = Integer.MAX_VALUE;
+
+    public LocationHistory() {}
+
+    public LocationHistory(int capacity) {
+        capacity(capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of points kept. When the history holds more points than the new capacity,
+     * the oldest points are dropped.
+     */
+    public LocationHistory capacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        if (size > capacity) {
+            int drop = size - capacity;
+            head = (head + drop) % lat.length;
+            size = capacity;
+        }
+        return this;
+    }
+
+    public double latitude(int index) {
+        return lat[slot(index)];
+    }
+
+    public double longitude(int index) {
+        return lon[slot(index)];
+    }
+
+    public long timestamp(int index) {
+        return timestamp[slot(index)];
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void add(double latitude, double longitude, long time) {
+        if (size == capacity) {
+            int slot = (head + size) % lat.length;
+            lat[slot] = latitude;
+            lon[slot] = longitude;
+            timestamp[slot] = time;
+            head = (head + 1) % lat.length;
+            modCount++;
+            return;
+        }
+        if (size == lat.length) {
+            grow();
+        }
+        int slot = (head + size) % lat.length;
+        lat[slot] = latitude;
+        lon[slot] = longitude;
+        timestamp[slot] = time;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(ResponderLocationHistory rlh) {
+        add(rlh.getLat(), rlh.getLon(), rlh.getTimestamp());
+        return true;
+    }
+
+    @Override
+    public ResponderLocationHistory get(int index) {
+        int slot = slot(index);
+        return new ResponderLocationHistory(lat[slot], lon[slot], timestamp[slot]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public LocationHistory copy() {
+        LocationHistory copy = new LocationHistory();
+        copy.lat = lat.clone();
+        copy.lon = lon.clone();
+        copy.timestamp = timestamp.clone();
+        copy.head = head;
+        copy.size = size;
+        copy.capacity = capacity;
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Reduces the history with the Douglas-Peucker algorithm: points that deviate less than {@code toleranceMeters}
+     * from the line between the points kept around them are removed. The first and last points are always kept.
+     */
+    public void simplify(double toleranceMeters) {
+        if (size < 3 || toleranceMeters <= 0) {
+            return;
+        }
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+        int[] stack = new int[2 * size];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistance = 0;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegment(i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest != -1 && maxDistance > toleranceMeters) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        compact(keep);
+    }
+
+    /**
+     * Approximate distance in meters between the point at {@code index} and the given coordinates.
+     */
+    public double distance(int index, double latitude, double longitude) {
+        int slot = slot(index);
+        return distance(lat[slot], lon[slot], latitude, longitude);
+    }
+
+    /**
+     * Approximate (equirectangular) distance in meters between two nearby coordinates.
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+
+    private double distanceToSegment(int index, int first, int last) {
+        int p = slot(index);
+        int a = slot(first);
+        int b = slot(last);
+        // local equirectangular projection around the point, in meters
+        double cosLat = Math.cos(Math.toRadians(lat[p]));
+        double ax = Math.toRadians(lon[a] - lon[p]) * cosLat * EARTH_RADIUS_METERS;
+        double ay = Math.toRadians(lat[a] - lat[p]) * EARTH_RADIUS_METERS;
+        double bx = Math.toRadians(lon[b] - lon[p]) * cosLat * EARTH_RADIUS_METERS;
+        double by = Math.toRadians(lat[b] - lat[p]) * EARTH_RADIUS_METERS;
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+        double x = ax + t * dx;
+        double y = ay + t * dy;
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private void compact(boolean[] keep) {
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        if (kept == size) {
+            return;
+        }
+        double[] newLat = new double[lat.length];
+        double[] newLon = new double[lon.length];
+        long[] newTimestamp = new long[timestamp.length];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                int slot = slot(i);
+                newLat[j] = lat[slot];
+                newLon[j] = lon[slot];
+                newTimestamp[j] = timestamp[slot];
+                j++;
+            }
+        }
+        lat = newLat;
+        lon = newLon;
+        timestamp = newTimestamp;
+        head = 0;
+        size = kept;
+        modCount++;
+    }
+
+    private void grow() {
+        int length = (int) Math.min(capacity, Math.max(INITIAL_SIZE, (long) lat.length * 2));
+        double[] newLat = new double[length];
+        double[] newLon = new double[length];
+        long[] newTimestamp = new long[length];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            newLat[i] = lat[slot];
+            newLon[i] = lon[slot];
+            newTimestamp[i] = timestamp[slot];
+        }
+        lat = newLat;
+        lon = newLon;
+        timestamp = newTimestamp;
+        head = 0;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (head + index) % lat.length;
+    }
+}
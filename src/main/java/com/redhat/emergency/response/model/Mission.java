@@ -1,6 +1,5 @@
 package com.redhat.emergency.response.model;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -8,6 +7,7 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.vertx.core.json.Json;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -19,27 +19,44 @@ public class Mission {
 
     private String responderId;
 
-    private BigDecimal responderStartLat;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double responderStartLat;
 
-    private BigDecimal responderStartLong;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double responderStartLong;
 
-    private BigDecimal incidentLat;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double incidentLat;
 
-    private BigDecimal incidentLong;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double incidentLong;
 
-    private BigDecimal destinationLat;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double destinationLat;
 
-    private BigDecimal destinationLong;
+    @JsonDeserialize(using = CoordinateDeserializer.class)
+    private double destinationLong;
 
-    private List<ResponderLocationHistory> responderLocationHistory;
+    private LocationHistory responderLocationHistory;
 
     private String status;
 
     private List<MissionStep> steps;
 
     public Mission() {
-        id = UUID.randomUUID().toString();
-        responderLocationHistory = new ArrayList<>();
+        this(UUID.randomUUID().toString());
+    }
+
+    private Mission(String id) {
+        this.id = id;
+        // coordinates missing from the source message, or null, stay NaN
+        responderStartLat = Double.NaN;
+        responderStartLong = Double.NaN;
+        incidentLat = Double.NaN;
+        incidentLong = Double.NaN;
+        destinationLat = Double.NaN;
+        destinationLong = Double.NaN;
+        responderLocationHistory = new LocationHistory();
         steps = new ArrayList<>();
     }
 
@@ -55,34 +72,39 @@ public class Mission {
         return responderId;
     }
 
-    public BigDecimal getResponderStartLat() {
+    public double getResponderStartLat() {
         return responderStartLat;
     }
 
-    public BigDecimal getResponderStartLong() {
+    public double getResponderStartLong() {
         return responderStartLong;
     }
 
-    public BigDecimal getIncidentLat() {
+    public double getIncidentLat() {
         return incidentLat;
     }
 
-    public BigDecimal getIncidentLong() {
+    public double getIncidentLong() {
         return incidentLong;
     }
 
-    public BigDecimal getDestinationLat() {
+    public double getDestinationLat() {
         return destinationLat;
     }
 
-    public BigDecimal getDestinationLong() {
+    public double getDestinationLong() {
         return destinationLong;
     }
 
-    public List<ResponderLocationHistory> getResponderLocationHistory() {
+    public LocationHistory getResponderLocationHistory() {
         return responderLocationHistory;
     }
 
+    public Mission responderLocationHistory(LocationHistory responderLocationHistory) {
+        this.responderLocationHistory = responderLocationHistory;
+        return this;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -108,6 +130,22 @@ public class Mission {
         return Location.of(destinationLat, destinationLong);
     }
 
+    public Mission copy() {
+        Mission copy = new Mission(id);
+        copy.incidentId = incidentId;
+        copy.responderId = responderId;
+        copy.responderStartLat = responderStartLat;
+        copy.responderStartLong = responderStartLong;
+        copy.incidentLat = incidentLat;
+        copy.incidentLong = incidentLong;
+        copy.destinationLat = destinationLat;
+        copy.destinationLong = destinationLong;
+        copy.responderLocationHistory = responderLocationHistory.copy();
+        copy.status = status;
+        copy.steps.addAll(steps);
+        return copy;
+    }
+
     public String toJson() {
         return Json.encode(this);
     }
@@ -130,8 +168,90 @@ public class Mission {
         return this.incidentId + ":" + this.responderId;
     }
 
+    @JsonIgnore
+    public boolean isActive() {
+        return !(MissionStatus.COMPLETED.name().equals(status) || MissionStatus.FAILED.name().equals(status));
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(getKey());
     }
+
+    public static Builder builder(String id) {
+        return new Builder(id);
+    }
+
+    public static class Builder {
+
+        private final Mission mission;
+
+        public Builder(String id) {
+            mission = new Mission(id);
+        }
+
+        public Builder incidentId(String incidentId) {
+            mission.incidentId = incidentId;
+            return this;
+        }
+
+        public Builder responderId(String responderId) {
+            mission.responderId = responderId;
+            return this;
+        }
+
+        public Builder responderStartLat(double responderStartLat) {
+            mission.responderStartLat = responderStartLat;
+            return this;
+        }
+
+        public Builder responderStartLong(double responderStartLong) {
+            mission.responderStartLong = responderStartLong;
+            return this;
+        }
+
+        public Builder incidentLat(double incidentLat) {
+            mission.incidentLat = incidentLat;
+            return this;
+        }
+
+        public Builder incidentLong(double incidentLong) {
+            mission.incidentLong = incidentLong;
+            return this;
+        }
+
+        public Builder destinationLat(double destinationLat) {
+            mission.destinationLat = destinationLat;
+            return this;
+        }
+
+        public Builder destinationLong(double destinationLong) {
+            mission.destinationLong = destinationLong;
+            return this;
+        }
+
+        public Builder responderLocationHistory(List<ResponderLocationHistory> responderLocationHistory) {
+            mission.responderLocationHistory.addAll(responderLocationHistory);
+            return this;
+        }
+
+        public Builder responderLocationHistory(LocationHistory responderLocationHistory) {
+            mission.responderLocationHistory = responderLocationHistory;
+            return this;
+        }
+
+        public Builder status(String status) {
+            mission.status = status;
+            return this;
+        }
+
+        public Builder steps(List<MissionStep> steps) {
+            mission.steps.addAll(steps);
+            return this;
+        }
+
+        public Mission build() {
+            return mission;
+        }
+    }
 }
@@ -1,24 +1,24 @@
 package com.redhat.emergency.response.model;
 
-import java.math.BigDecimal;
+import java.util.Objects;
 
 import io.vertx.core.json.Json;
 
 public class MissionStep {
 
-    private BigDecimal lat;
+    private double lat;
 
-    private BigDecimal lon;
+    private double lon;
 
     private boolean wayPoint = false;
 
     private boolean destination = false;
 
-    public BigDecimal getLat() {
+    public double getLat() {
         return lat;
     }
 
-    public BigDecimal getLon() {
+    public double getLon() {
         return lon;
     }
 
@@ -36,12 +36,16 @@ public class MissionStep {
         if (o == null || getClass() != o.getClass()) return false;
         MissionStep step = (MissionStep) o;
 
-        return (lat != null && step.lat != null && lat.compareTo(step.lat) == 0) || (lat == null && step.lat == null) &&
-                (lon != null && step.lon != null && lon.compareTo(step.lon) == 0) || (lat == null && step.lat == null) &&
+        return Double.compare(lat, step.lat) == 0 && Double.compare(lon, step.lon) == 0 &&
                 step.destination == destination &&
                 step.wayPoint == wayPoint;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(lat, lon, wayPoint, destination);
+    }
+
     public String toJson() {
         return Json.encode(this);
     }
@@ -51,7 +55,7 @@ public class MissionStep {
         return toJson();
     }
 
-    public static Builder builder(BigDecimal lat, BigDecimal lon) {
+    public static Builder builder(double lat, double lon) {
         return new Builder(lat, lon);
     }
 
@@ -59,7 +63,7 @@ public class MissionStep {
 
         private final MissionStep missionStep = new MissionStep();
 
-        public Builder(BigDecimal lat, BigDecimal lon) {
+        public Builder(double lat, double lon) {
             missionStep.lat = lat;
             missionStep.lon = lon;
         }
@@ -0,0 +1,98 @@
+package com.redhat.emergency.response.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact form of a list of {@link MissionStep}: the coordinates as an encoded polyline with a precision of 1e-6 degree
+ * (about 0.1 m), the format used by the common routing services, plus the indices of the waypoint and destination
+ * steps. A route of a few hundred steps takes a few bytes per step instead of about 70 as JSON.
+ * <p>
+ * Only lists with at most one waypoint and one destination step can be encoded.
+ */
+public final class MissionStepPolyline {
+
+    private static final double SCALE = 1e6;
+
+    private MissionStepPolyline() {}
+
+    public static boolean isEncodable(List<MissionStep> steps) {
+        return steps.stream().filter(MissionStep::isWayPoint).count() <= 1
+                && steps.stream().filter(MissionStep::isDestination).count() <= 1;
+    }
+
+    public static String encode(List<MissionStep> steps) {
+        StringBuilder polyline = new StringBuilder(steps.size() * 8);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (MissionStep step : steps) {
+            long lat = Math.round(step.getLat() * SCALE);
+            long lon = Math.round(step.getLon() * SCALE);
+            encode(polyline, lat - previousLat);
+            encode(polyline, lon - previousLon);
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return polyline.toString();
+    }
+
+    /**
+     * @return the index of the waypoint step, or -1
+     */
+    public static int wayPointIndex(List<MissionStep> steps) {
+        for (int i = 0; i < steps.size(); i++) {
+            if (steps.get(i).isWayPoint()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the destination step, or -1
+     */
+    public static int destinationIndex(List<MissionStep> steps) {
+        for (int i = 0; i < steps.size(); i++) {
+            if (steps.get(i).isDestination()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static List<MissionStep> decode(String polyline, int wayPointIndex, int destinationIndex) {
+        List<MissionStep> steps = new ArrayList<>();
+        int[] position = {0};
+        long lat = 0;
+        long lon = 0;
+        while (position[0] < polyline.length()) {
+            lat += decode(polyline, position);
+            lon += decode(polyline, position);
+            int index = steps.size();
+            steps.add(MissionStep.builder(lat / SCALE, lon / SCALE)
+                    .wayPoint(index == wayPointIndex).destination(index == destinationIndex).build());
+        }
+        return steps;
+    }
+
+    private static void encode(StringBuilder polyline, long value) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            polyline.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        polyline.append((char) (v + 63));
+    }
+
+    private static long decode(String polyline, int[] position) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = polyline.charAt(position[0]++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+    }
+}
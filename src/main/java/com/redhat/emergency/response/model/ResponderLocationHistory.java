@@ -1,28 +1,26 @@
 package com.redhat.emergency.response.model;
 
-import java.math.BigDecimal;
-
 public class ResponderLocationHistory {
 
-    private BigDecimal lat;
+    private double lat;
 
-    private BigDecimal lon;
+    private double lon;
 
     private long timestamp;
 
     private ResponderLocationHistory() {}
 
-    public ResponderLocationHistory(BigDecimal lat, BigDecimal lon, long timestamp) {
+    public ResponderLocationHistory(double lat, double lon, long timestamp) {
         this.lat = lat;
         this.lon = lon;
         this.timestamp = timestamp;
     }
 
-    public BigDecimal getLat() {
+    public double getLat() {
         return lat;
     }
 
-    public BigDecimal getLon() {
+    public double getLon() {
         return lon;
     }
 
@@ -1,30 +1,141 @@
 package com.redhat.emergency.response.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.infinispan.commons.configuration.BasicConfiguration;
 
-
+/**
+ * Definition of a distributed cache created on the grid. Only the settings given are written, the others are left to
+ * the server defaults. The definition only applies when the cache is created, an existing cache keeps its settings.
+ */
 public class Configuration implements BasicConfiguration {
 
+    private static final String PREFIX = "infinispan.cache.";
+
+    private static final Set<String> MODES = Set.of("SYNC", "ASYNC");
+
+    private static final Set<String> STORAGES = Set.of("OBJECT", "BINARY", "OFF_HEAP");
+
+    private static final Set<String> INDEXES = Set.of("NONE", "LOCAL", "PRIMARY_OWNER", "ALL");
+
     private String name;
 
-    private String mode;
+    private String mode = "SYNC";
+
+    private Integer owners = 2;
+
+    private Integer segments;
+
+    private Long l1Lifespan;
+
+    private String storage;
+
+    private Long maxCount;
+
+    private Long maxSize;
+
+    private Long lifespan;
+
+    private Long maxIdle;
+
+    private Long expirationInterval;
 
-    private Integer owners;
+    private String indexing;
+
+    private final List<String> indexedEntities = new ArrayList<>();
 
     @Override
     public String toXMLString(String name) {
-        return "<infinispan><cache-container>"
-                + "<distributed-cache name=\"" + name + "\" "
-                + "mode=\"" + mode + "\" "
-                + "owners=\"" + owners + "\">"
-                + "</distributed-cache>"
-                + "</cache-container></infinispan>";
+        StringBuilder xml = new StringBuilder("<infinispan><cache-container>")
+                .append("<distributed-cache name=\"").append(name).append("\" ")
+                .append("mode=\"").append(mode).append("\" ")
+                .append("owners=\"").append(owners).append("\"");
+        if (segments != null) {
+            xml.append(" segments=\"").append(segments).append("\"");
+        }
+        if (l1Lifespan != null) {
+            xml.append(" l1-lifespan=\"").append(l1Lifespan).append("\"");
+        }
+        xml.append(">");
+        if (storage != null || maxCount != null || maxSize != null) {
+            boolean object = storage == null || "OBJECT".equals(storage);
+            xml.append("<memory><").append(object ? "object" : storage.toLowerCase().replace('_', '-'));
+            if (maxCount != null) {
+                // object storage only evicts on count and has no eviction attribute
+                xml.append(" size=\"").append(maxCount).append(object ? "\"" : "\" eviction=\"COUNT\"").append(" strategy=\"REMOVE\"");
+            } else if (maxSize != null) {
+                xml.append(" size=\"").append(maxSize).append("\" eviction=\"MEMORY\" strategy=\"REMOVE\"");
+            }
+            xml.append("/></memory>");
+        }
+        if (lifespan != null || maxIdle != null || expirationInterval != null) {
+            xml.append("<expiration");
+            if (lifespan != null) {
+                xml.append(" lifespan=\"").append(lifespan).append("\"");
+            }
+            if (maxIdle != null) {
+                xml.append(" max-idle=\"").append(maxIdle).append("\"");
+            }
+            if (expirationInterval != null) {
+                xml.append(" interval=\"").append(expirationInterval).append("\"");
+            }
+            xml.append("/>");
+        }
+        if (indexing != null) {
+            xml.append("<indexing index=\"").append(indexing).append("\"");
+            if (indexedEntities.isEmpty()) {
+                xml.append("/>");
+            } else {
+                xml.append("><indexed-entities>");
+                indexedEntities.forEach(e -> xml.append("<indexed-entity>").append(e).append("</indexed-entity>"));
+                xml.append("</indexed-entities></indexing>");
+            }
+        }
+        return xml.append("</distributed-cache>")
+                .append("</cache-container></infinispan>").toString();
     }
 
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Reads the definition of a cache from the {@code infinispan.cache.<cache>.*} properties: {@code mode},
+     * {@code owners}, {@code segments}, {@code l1-lifespan}, {@code memory.storage} ({@code OBJECT}, {@code BINARY} or
+     * {@code OFF_HEAP}), {@code memory.max-count} or {@code memory.max-size} in bytes, {@code expiration.lifespan},
+     * {@code expiration.max-idle}, {@code expiration.interval}, {@code indexing.index} and a comma separated list of
+     * {@code indexing.indexed-entities}. Times are in ms.
+     *
+     * @param cache the cache as named in the properties, e.g. {@code mission}
+     * @param name the name of the cache on the grid
+     */
+    public static Configuration fromConfig(String cache, String name) {
+        Config config = ConfigProvider.getConfig();
+        String prefix = PREFIX + cache + ".";
+        Builder builder = builder().name(name);
+        config.getOptionalValue(prefix + "mode", String.class).ifPresent(builder::mode);
+        config.getOptionalValue(prefix + "owners", Integer.class).ifPresent(builder::owners);
+        config.getOptionalValue(prefix + "segments", Integer.class).ifPresent(builder::segments);
+        config.getOptionalValue(prefix + "l1-lifespan", Long.class).ifPresent(builder::l1Lifespan);
+        config.getOptionalValue(prefix + "memory.storage", String.class).ifPresent(builder::storage);
+        config.getOptionalValue(prefix + "memory.max-count", Long.class).ifPresent(builder::maxCount);
+        config.getOptionalValue(prefix + "memory.max-size", Long.class).ifPresent(builder::maxSize);
+        config.getOptionalValue(prefix + "expiration.lifespan", Long.class).ifPresent(builder::lifespan);
+        config.getOptionalValue(prefix + "expiration.max-idle", Long.class).ifPresent(builder::maxIdle);
+        config.getOptionalValue(prefix + "expiration.interval", Long.class).ifPresent(builder::expirationInterval);
+        config.getOptionalValue(prefix + "indexing.index", String.class).ifPresent(builder::indexing);
+        config.getOptionalValue(prefix + "indexing.indexed-entities", String.class)
+                .ifPresent(e -> builder.indexedEntities(Arrays.stream(e.split(",")).map(String::trim)
+                        .filter(s -> !s.isEmpty()).collect(Collectors.toList())));
+        return builder.build();
+    }
+
     public static class Builder {
 
         private final Configuration configuration = new Configuration();
@@ -46,9 +157,82 @@ public class Configuration implements BasicConfiguration {
             return this;
         }
 
+        public Builder segments(Integer segments) {
+            configuration.segments = segments;
+            return this;
+        }
+
+        /**
+         * Enables the L1 cache of entries owned by other nodes, for {@code l1Lifespan} ms.
+         */
+        public Builder l1Lifespan(Long l1Lifespan) {
+            configuration.l1Lifespan = l1Lifespan;
+            return this;
+        }
+
+        public Builder storage(String storage) {
+            configuration.storage = storage.toUpperCase();
+            return this;
+        }
+
+        public Builder maxCount(Long maxCount) {
+            configuration.maxCount = maxCount;
+            return this;
+        }
+
+        public Builder maxSize(Long maxSize) {
+            configuration.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder lifespan(Long lifespan) {
+            configuration.lifespan = lifespan;
+            return this;
+        }
+
+        public Builder maxIdle(Long maxIdle) {
+            configuration.maxIdle = maxIdle;
+            return this;
+        }
+
+        public Builder expirationInterval(Long expirationInterval) {
+            configuration.expirationInterval = expirationInterval;
+            return this;
+        }
+
+        public Builder indexing(String indexing) {
+            configuration.indexing = indexing.toUpperCase();
+            return this;
+        }
+
+        public Builder indexedEntities(List<String> indexedEntities) {
+            configuration.indexedEntities.addAll(indexedEntities);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a setting has an unknown value, or if both a maximum count and size are
+         * set, or a maximum size with object storage
+         */
         public Configuration build() {
+            check(MODES, configuration.mode, "mode");
+            check(STORAGES, configuration.storage, "storage");
+            check(INDEXES, configuration.indexing, "indexing");
+            if (configuration.maxCount != null && configuration.maxSize != null) {
+                throw new IllegalArgumentException("Cache " + configuration.name + " can not have both a maximum count and size");
+            }
+            if (configuration.maxSize != null && (configuration.storage == null || "OBJECT".equals(configuration.storage))) {
+                throw new IllegalArgumentException("Cache " + configuration.name + " needs BINARY or OFF_HEAP storage for a maximum size");
+            }
             return configuration;
         }
 
+        private void check(Set<String> values, String value, String setting) {
+            if (value != null && !values.contains(value)) {
+                throw new IllegalArgumentException("Unknown " + setting + " " + value + " for cache " + configuration.name
+                        + ", expected one of " + values);
+            }
+        }
+
     }
 }
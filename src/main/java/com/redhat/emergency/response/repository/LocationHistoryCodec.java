@@ -0,0 +1,86 @@
+package com.redhat.emergency.response.repository;
+
+import java.util.Arrays;
+
+import com.redhat.emergency.response.model.LocationHistory;
+
+/**
+ * Compact binary form of a {@link LocationHistory}: the number of points followed, for every point, by the
+ * zigzag varint encoded difference with the previous point of its latitude and longitude (fixed point, 1e-6 degree,
+ * about 0.1 m) and timestamp (ms). Consecutive GPS pings are close in space and time, so most points take 4 to 6 bytes.
+ */
+final class LocationHistoryCodec {
+
+    private static final double SCALE = 1e6;
+
+    private LocationHistoryCodec() {}
+
+    static byte[] encode(LocationHistory history) {
+        int size = history.size();
+        byte[] buffer = new byte[5 + size * 12];
+        int position = writeVarint(buffer, 0, size);
+        long previousLat = 0;
+        long previousLon = 0;
+        long previousTimestamp = 0;
+        for (int i = 0; i < size; i++) {
+            long lat = Math.round(history.latitude(i) * SCALE);
+            long lon = Math.round(history.longitude(i) * SCALE);
+            long timestamp = history.timestamp(i);
+            if (buffer.length - position < 30) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            position = writeVarint(buffer, position, zigzag(lat - previousLat));
+            position = writeVarint(buffer, position, zigzag(lon - previousLon));
+            position = writeVarint(buffer, position, zigzag(timestamp - previousTimestamp));
+            previousLat = lat;
+            previousLon = lon;
+            previousTimestamp = timestamp;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    static LocationHistory decode(byte[] bytes) {
+        int[] position = {0};
+        int size = (int) readVarint(bytes, position);
+        LocationHistory history = new LocationHistory();
+        long lat = 0;
+        long lon = 0;
+        long timestamp = 0;
+        for (int i = 0; i < size; i++) {
+            lat += unzigzag(readVarint(bytes, position));
+            lon += unzigzag(readVarint(bytes, position));
+            timestamp += unzigzag(readVarint(bytes, position));
+            history.add(lat / SCALE, lon / SCALE, timestamp);
+        }
+        return history;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
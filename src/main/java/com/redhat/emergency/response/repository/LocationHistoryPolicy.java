@@ -0,0 +1,62 @@
+package com.redhat.emergency.response.repository;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import com.redhat.emergency.response.model.LocationHistory;
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Decides which responder locations are kept in the history of a mission.
+ * <ul>
+ *     <li>a location closer than {@code min-distance} meters and more recent than {@code min-interval} ms to the last
+ *     kept location is skipped, unless it is forced (e.g. a pick up or drop off);</li>
+ *     <li>once the history holds {@code capacity} locations, it is first reduced with Douglas-Peucker when
+ *     {@code simplify-tolerance} is set, and otherwise the oldest location is overwritten.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class LocationHistoryPolicy {
+
+    @ConfigProperty(name = "mission.location-history.capacity", defaultValue = "1000")
+    int capacity;
+
+    @ConfigProperty(name = "mission.location-history.min-distance", defaultValue = "0")
+    double minDistance;
+
+    @ConfigProperty(name = "mission.location-history.min-interval", defaultValue = "0")
+    long minInterval;
+
+    @ConfigProperty(name = "mission.location-history.simplify-tolerance", defaultValue = "0")
+    double simplifyTolerance;
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @param last the last kept location, or null if unknown
+     * @return true if the location should be kept
+     */
+    public boolean accept(ResponderLocationHistory last, ResponderLocationHistory location, boolean force) {
+        return force || last == null || location.getTimestamp() - last.getTimestamp() >= minInterval
+                || LocationHistory.distance(last.getLat(), last.getLon(), location.getLat(), location.getLon()) >= minDistance;
+    }
+
+    /**
+     * @return true if the location was added to the history
+     */
+    public boolean append(LocationHistory history, ResponderLocationHistory location, boolean force) {
+        if (history.capacity() != capacity) {
+            history.capacity(capacity);
+        }
+        if (!accept(history.isEmpty() ? null : history.get(history.size() - 1), location, force)) {
+            return false;
+        }
+        if (history.isFull() && simplifyTolerance > 0) {
+            history.simplify(simplifyTolerance);
+        }
+        history.add(location.getLat(), location.getLon(), location.getTimestamp());
+        return true;
+    }
+}
@@ -0,0 +1,242 @@
+package com.redhat.emergency.response.repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+
+import com.redhat.emergency.response.model.LocationHistory;
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only store for the location history of active missions, kept apart from the mission entries so that a
+ * location update does not have to read and rewrite the whole mission.
+ * <p>
+ * The entry keyed by the mission key ({@code incidentId:responderId}) holds the last sequence number of the mission. It
+ * is created with the mission (see {@link #createAsync}) and removed with the history: locations appended to a mission
+ * without it are ignored. Every location is a separate entry keyed by {@code incidentId:responderId:slot}, the slot
+ * being the sequence number modulo {@link LocationHistoryPolicy#capacity()}, so that a new location overwrites the one
+ * that falls out of the history and nothing has to be removed on append.
+ * <p>
+ * Sequence numbers are claimed with a versioned replace of the head entry before the locations are written, so two
+ * writers of the same mission, e.g. around a rebalance of the consumers, never write the same slots; a writer that
+ * loses the race reads the head again. Location entries expire {@code slot-lifespan} ms after they are last written,
+ * removing a history only removes its head.
+ * <p>
+ * The {@code Uni} returning methods only use the asynchronous Hot Rod operations; the other methods wait for them.
+ */
+@ApplicationScoped
+public class LocationHistoryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationHistoryRepository.class);
+
+    private static final int MAX_SEQUENCE_UPDATE_ATTEMPTS = 10;
+
+    private static final int MAX_TRACKED_MISSIONS = 10000;
+
+    @Inject
+    RemoteCacheManager cacheManager;
+
+    @Inject
+    LocationHistoryPolicy policy;
+
+    @ConfigProperty(name = "infinispan.cache.name.mission-location-history", defaultValue = "mission-location-history")
+    String cacheName;
+
+    /**
+     * Locations older than this are dropped from the history of a mission that is still active.
+     */
+    @ConfigProperty(name = "mission.location-history.slot-lifespan", defaultValue = "86400000")
+    long slotLifespan;
+
+    RemoteCache<String, Object> historyCache;
+
+    /**
+     * Last location kept for recently updated missions, used to downsample new locations without a read from the grid.
+     */
+    private final Map<String, ResponderLocationHistory> lastLocations = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ResponderLocationHistory> eldest) {
+            return size() > MAX_TRACKED_MISSIONS;
+        }
+    });
+
+    /**
+     * Runs before the mission repository starts, which creates the history of the active missions when it rebuilds its
+     * indexes.
+     */
+    void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION) StartupEvent e) {
+        log.info("Creating remote cache '" + cacheName + "'" );
+        Configuration configuration = Configuration.fromConfig("mission-location-history", cacheName);
+        historyCache = cacheManager.administration().getOrCreateCache(cacheName, configuration);
+    }
+
+    /**
+     * Creates the empty history of an active mission, an existing history is kept.
+     */
+    public Uni<Void> createAsync(String missionKey) {
+        return Uni.createFrom().completionStage(() -> historyCache.putIfAbsentAsync(missionKey, 0L)).onItem().apply(previous -> null);
+    }
+
+    public void append(String missionKey, ResponderLocationHistory location, boolean force) {
+        appendAsync(missionKey, location, force).await().indefinitely();
+    }
+
+    public Uni<Void> appendAsync(String missionKey, ResponderLocationHistory location, boolean force) {
+        return appendAllAsync(missionKey, Collections.singletonList(location), force);
+    }
+
+    /**
+     * Appends the locations, in order, with a single sequence claim and a single {@code putAll}.
+     */
+    public Uni<Void> appendAllAsync(String missionKey, List<ResponderLocationHistory> locations, boolean force) {
+        return claim(missionKey, locations, force, 0).onItem().produceUni(this::putAll);
+    }
+
+    /**
+     * Appends the locations of several missions, with a sequence claim per mission and a single {@code putAll} for all
+     * the missions.
+     */
+    public Uni<Void> appendAllAsync(Map<String, List<ResponderLocationHistory>> locations) {
+        List<Uni<Map<String, Object>>> entries = locations.entrySet().stream()
+                .map(e -> claim(e.getKey(), e.getValue(), false, 0)).collect(Collectors.toList());
+        if (entries.isEmpty()) {
+            return Uni.createFrom().nullItem();
+        }
+        return Uni.combine().all().unis(entries).combinedWith(results -> {
+            Map<String, Object> all = new HashMap<>();
+            for (Object result : results) {
+                ((Map<?, ?>) result).forEach((key, location) -> all.put((String) key, location));
+            }
+            return all;
+        }).onItem().produceUni(this::putAll);
+    }
+
+    /**
+     * Keeps the locations accepted by the policy and claims their sequence numbers, by replacing the head entry only if
+     * no other writer replaced it since it was read.
+     *
+     * @return the location entries to write, empty if there is nothing to write
+     * @throws IllegalStateException if the sequence numbers could not be claimed after a bounded number of attempts
+     */
+    private Uni<Map<String, Object>> claim(String missionKey, List<ResponderLocationHistory> locations, boolean force, int attempt) {
+        if (attempt >= MAX_SEQUENCE_UPDATE_ATTEMPTS) {
+            return Uni.createFrom().failure(new IllegalStateException("Could not allocate a location history sequence for mission with key = "
+                    + missionKey + " after " + MAX_SEQUENCE_UPDATE_ATTEMPTS + " attempts"));
+        }
+        return Uni.createFrom().completionStage(() -> historyCache.getWithMetadataAsync(missionKey)).onItem().produceUni(head -> {
+            if (head == null || !(head.getValue() instanceof Long)) {
+                log.warn("Mission with key = " + missionKey + " has no location history, locations are ignored.");
+                return Uni.createFrom().item(Collections.<String, Object>emptyMap());
+            }
+            ResponderLocationHistory last = lastLocations.get(missionKey);
+            long sequence = (Long) head.getValue();
+            Map<String, Object> entries = new HashMap<>();
+            for (ResponderLocationHistory location : locations) {
+                if (policy.accept(last, location, force)) {
+                    entries.put(locationKey(missionKey, ++sequence), location);
+                    last = location;
+                }
+            }
+            if (entries.isEmpty()) {
+                return Uni.createFrom().item(entries);
+            }
+            long claimed = sequence;
+            ResponderLocationHistory lastAccepted = last;
+            return Uni.createFrom().completionStage(() -> historyCache.replaceWithVersionAsync(missionKey, claimed, head.getVersion()))
+                    .onItem().produceUni(replaced -> {
+                        if (!replaced) {
+                            // another writer appended in the meantime, its last location is not known here
+                            lastLocations.remove(missionKey);
+                            return claim(missionKey, locations, force, attempt + 1);
+                        }
+                        lastLocations.put(missionKey, lastAccepted);
+                        return Uni.createFrom().item(entries);
+                    });
+        });
+    }
+
+    private Uni<Void> putAll(Map<String, Object> entries) {
+        if (entries.isEmpty()) {
+            return Uni.createFrom().nullItem();
+        }
+        return Uni.createFrom().completionStage(() -> historyCache.putAllAsync(entries, slotLifespan, TimeUnit.MILLISECONDS));
+    }
+
+    public LocationHistory get(String missionKey) {
+        return getAsync(missionKey).await().indefinitely();
+    }
+
+    /**
+     * Locations older than the one before them are skipped: they were left in a slot whose sequence number was claimed
+     * but not written, e.g. when the writer failed.
+     */
+    public Uni<LocationHistory> getAsync(String missionKey) {
+        return Uni.createFrom().completionStage(() -> historyCache.getAsync(missionKey)).onItem().produceUni(head -> {
+            LocationHistory history = new LocationHistory(policy.capacity());
+            if (!(head instanceof Long) || (Long) head == 0) {
+                return Uni.createFrom().item(history);
+            }
+            long last = (Long) head;
+            long first = Math.max(1, last - policy.capacity() + 1);
+            return Uni.createFrom().completionStage(() -> historyCache.getAllAsync(locationKeys(missionKey, first, last)))
+                    .onItem().apply(locations -> {
+                        for (long sequence = first; sequence <= last; sequence++) {
+                            Object location = locations.get(locationKey(missionKey, sequence));
+                            if (location instanceof ResponderLocationHistory && (history.isEmpty()
+                                    || history.get(history.size() - 1).getTimestamp() <= ((ResponderLocationHistory) location).getTimestamp())) {
+                                history.add((ResponderLocationHistory) location);
+                            }
+                        }
+                        return history;
+                    });
+        });
+    }
+
+    public void remove(String missionKey) {
+        removeAsync(missionKey).await().indefinitely();
+    }
+
+    /**
+     * Removes the head of the history, its locations are no longer read and expire with their lifespan. Locations
+     * appended to the mission afterwards are ignored.
+     */
+    public Uni<Void> removeAsync(String missionKey) {
+        lastLocations.remove(missionKey);
+        return Uni.createFrom().completionStage(() -> historyCache.removeAsync(missionKey)).onItem().apply(previous -> null);
+    }
+
+    public void clear() {
+        historyCache.clear();
+        lastLocations.clear();
+    }
+
+    private Set<String> locationKeys(String missionKey, long first, long last) {
+        Set<String> keys = new HashSet<>();
+        for (long sequence = first; sequence <= last; sequence++) {
+            keys.add(locationKey(missionKey, sequence));
+        }
+        return keys;
+    }
+
+    private String locationKey(String missionKey, long sequence) {
+        return missionKey + ":" + Math.floorMod(sequence, policy.capacity());
+    }
+}
@@ -0,0 +1,41 @@
+package com.redhat.emergency.response.repository;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.protostream.BaseMarshaller;
+
+/**
+ * Registers the ProtoStream marshallers for the types described in {@code META-INF/mission.proto}
+ * with the Infinispan client.
+ */
+@ApplicationScoped
+public class MarshallerConfiguration {
+
+    /**
+     * Stores the steps of missions as an encoded polyline. Missions stored with either form are read.
+     */
+    @ConfigProperty(name = "infinispan.cache.mission.encoded-steps", defaultValue = "true")
+    boolean encodedSteps;
+
+    @Produces
+    BaseMarshaller missionMarshaller() {
+        return new MissionMarshaller(encodedSteps);
+    }
+
+    @Produces
+    BaseMarshaller missionStepMarshaller() {
+        return new MissionStepMarshaller();
+    }
+
+    @Produces
+    BaseMarshaller responderLocationHistoryMarshaller() {
+        return new ResponderLocationHistoryMarshaller();
+    }
+
+    @Produces
+    BaseMarshaller missionStatusEntryMarshaller() {
+        return new MissionStatusEntryMarshaller();
+    }
+}
@@ -0,0 +1,164 @@
+package com.redhat.emergency.response.repository;
+
+import static com.redhat.emergency.response.repository.RawMessages.fieldNumber;
+import static com.redhat.emergency.response.repository.RawMessages.readMessage;
+import static com.redhat.emergency.response.repository.RawMessages.writeMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStep;
+import com.redhat.emergency.response.model.MissionStepPolyline;
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import org.infinispan.protostream.ImmutableSerializationContext;
+import org.infinispan.protostream.RawProtoStreamReader;
+import org.infinispan.protostream.RawProtoStreamWriter;
+import org.infinispan.protostream.RawProtobufMarshaller;
+
+public class MissionMarshaller implements RawProtobufMarshaller<Mission> {
+
+    private final boolean encodeSteps;
+
+    public MissionMarshaller() {
+        this(true);
+    }
+
+    /**
+     * @param encodeSteps write the steps as a polyline, see {@link MissionStepPolyline}
+     */
+    public MissionMarshaller(boolean encodeSteps) {
+        this.encodeSteps = encodeSteps;
+    }
+
+    @Override
+    public Mission readFrom(ImmutableSerializationContext ctx, RawProtoStreamReader in) throws IOException {
+        String id = null;
+        String incidentId = null;
+        String responderId = null;
+        double[] coordinates = {Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        List<ResponderLocationHistory> history = new ArrayList<>();
+        String status = null;
+        List<MissionStep> steps = new ArrayList<>();
+        byte[] encodedHistory = null;
+        String encodedSteps = null;
+        int wayPointStep = -1;
+        int destinationStep = -1;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            int field = fieldNumber(tag);
+            switch (field) {
+                case 1:
+                    id = in.readString();
+                    break;
+                case 2:
+                    incidentId = in.readString();
+                    break;
+                case 3:
+                    responderId = in.readString();
+                    break;
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                case 8:
+                case 9:
+                    coordinates[field - 4] = in.readDouble();
+                    break;
+                case 10:
+                    history.add(readMessage(ctx, in, ResponderLocationHistory.class));
+                    break;
+                case 11:
+                    status = in.readString();
+                    break;
+                case 12:
+                    steps.add(readMessage(ctx, in, MissionStep.class));
+                    break;
+                case 13:
+                    encodedHistory = in.readByteArray();
+                    break;
+                case 14:
+                    encodedSteps = in.readString();
+                    break;
+                case 15:
+                    wayPointStep = in.readInt32();
+                    break;
+                case 16:
+                    destinationStep = in.readInt32();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        Mission.Builder builder = Mission.builder(id)
+                .incidentId(incidentId)
+                .responderId(responderId)
+                .responderStartLat(coordinates[0])
+                .responderStartLong(coordinates[1])
+                .incidentLat(coordinates[2])
+                .incidentLong(coordinates[3])
+                .destinationLat(coordinates[4])
+                .destinationLong(coordinates[5])
+                .responderLocationHistory(history)
+                .status(status)
+                .steps(steps);
+        if (encodedHistory != null) {
+            builder.responderLocationHistory(LocationHistoryCodec.decode(encodedHistory));
+        }
+        if (encodedSteps != null) {
+            builder.steps(MissionStepPolyline.decode(encodedSteps, wayPointStep, destinationStep));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void writeTo(ImmutableSerializationContext ctx, RawProtoStreamWriter out, Mission mission) throws IOException {
+        writeString(out, 1, mission.getId());
+        writeString(out, 2, mission.getIncidentId());
+        writeString(out, 3, mission.getResponderId());
+        writeDouble(out, 4, mission.getResponderStartLat());
+        writeDouble(out, 5, mission.getResponderStartLong());
+        writeDouble(out, 6, mission.getIncidentLat());
+        writeDouble(out, 7, mission.getIncidentLong());
+        writeDouble(out, 8, mission.getDestinationLat());
+        writeDouble(out, 9, mission.getDestinationLong());
+        writeString(out, 11, mission.getStatus());
+        boolean encodedSteps = encodeSteps && !mission.getSteps().isEmpty() && MissionStepPolyline.isEncodable(mission.getSteps());
+        if (!encodedSteps) {
+            for (MissionStep step : mission.getSteps()) {
+                writeMessage(ctx, out, 12, step);
+            }
+        }
+        // the history of an active mission lives in the location history cache
+        if (!mission.isActive()) {
+            out.writeBytes(13, LocationHistoryCodec.encode(mission.getResponderLocationHistory()));
+        }
+        if (encodedSteps) {
+            out.writeString(14, MissionStepPolyline.encode(mission.getSteps()));
+            out.writeInt32(15, MissionStepPolyline.wayPointIndex(mission.getSteps()));
+            out.writeInt32(16, MissionStepPolyline.destinationIndex(mission.getSteps()));
+        }
+    }
+
+    @Override
+    public Class<? extends Mission> getJavaClass() {
+        return Mission.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "mission.Mission";
+    }
+
+    private static void writeString(RawProtoStreamWriter out, int fieldNumber, String value) throws IOException {
+        if (value != null) {
+            out.writeString(fieldNumber, value);
+        }
+    }
+
+    private static void writeDouble(RawProtoStreamWriter out, int fieldNumber, double value) throws IOException {
+        if (!Double.isNaN(value)) {
+            out.writeDouble(fieldNumber, value);
+        }
+    }
+}
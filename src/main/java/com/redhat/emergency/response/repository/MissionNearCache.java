@@ -0,0 +1,196 @@
+package com.redhat.emergency.response.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.redhat.emergency.response.model.Mission;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryExpired;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryExpiredEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional client side cache of decoded missions in front of the mission cache, with LRU eviction.
+ * <p>
+ * Entries are invalidated by the remote cache events of the mission cache, so a mission modified or removed by any
+ * node is fetched again on the next read. Missions are copied in and out, callers can modify what they get.
+ * Note that a remote {@code clear} does not emit events: other nodes keep their entries until they are modified.
+ * <p>
+ * The Hot Rod near cache ({@code quarkus.infinispan-client.near-cache-max-entries}) is not used: it hands the same
+ * decoded instance to every reader, while readers modify the missions they get, and it would apply to every cache of
+ * the client, the index caches included.
+ */
+@ApplicationScoped
+public class MissionNearCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MissionNearCache.class);
+
+    @ConfigProperty(name = "infinispan.cache.mission.near-cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "infinispan.cache.mission.near-cache.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Incremented on every invalidation. A mission read from the grid is only cached if its key was not invalidated
+     * while it was being read, otherwise a stale mission could be cached after the event that invalidated it.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Map<String, Mission> missions;
+
+    /**
+     * Stamp of the last invalidation of recently invalidated keys.
+     */
+    private Map<String, Long> invalidated;
+
+    /**
+     * Stamp of the last invalidation no longer held in {@link #invalidated}, a mission read before it is not cached.
+     */
+    private long floor;
+
+    void listen(RemoteCache<String, ?> missionCache) {
+        if (!enabled) {
+            return;
+        }
+        log.info("Enabling near cache for remote cache '" + missionCache.getName() + "' with max entries " + maxEntries);
+        missions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mission> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        invalidated = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > maxEntries) {
+                    floor = Math.max(floor, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        missionCache.addClientListener(new InvalidationListener());
+    }
+
+    public boolean isEnabled() {
+        return missions != null;
+    }
+
+    /**
+     * @return a token to pass to {@link #put} for a mission about to be read from the grid
+     */
+    long token() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return a copy of the cached mission, or null
+     */
+    Mission get(String key) {
+        if (missions == null) {
+            return null;
+        }
+        Mission mission;
+        synchronized (this) {
+            mission = missions.get(key);
+        }
+        if (mission == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return mission.copy();
+    }
+
+    void put(String key, Mission mission, long token) {
+        if (missions == null) {
+            return;
+        }
+        Mission copy = mission.copy();
+        synchronized (this) {
+            Long stamp = invalidated.get(key);
+            if (token >= floor && (stamp == null || stamp <= token)) {
+                missions.put(key, copy);
+            }
+        }
+    }
+
+    void invalidate(String key) {
+        if (missions == null) {
+            return;
+        }
+        synchronized (this) {
+            invalidated.remove(key);
+            invalidated.put(key, invalidations.incrementAndGet());
+            missions.remove(key);
+        }
+    }
+
+    void clear() {
+        if (missions == null) {
+            return;
+        }
+        synchronized (this) {
+            floor = invalidations.incrementAndGet();
+            invalidated.clear();
+            missions.clear();
+        }
+    }
+
+    @Gauge(name = "missionNearCacheHits", unit = MetricUnits.NONE, description = "Mission reads served by the near cache")
+    public long hits() {
+        return hits.get();
+    }
+
+    @Gauge(name = "missionNearCacheMisses", unit = MetricUnits.NONE, description = "Mission reads not found in the near cache")
+    public long misses() {
+        return misses.get();
+    }
+
+    @Gauge(name = "missionNearCacheSize", unit = MetricUnits.NONE, description = "Missions held in the near cache")
+    public synchronized long size() {
+        return missions == null ? 0 : missions.size();
+    }
+
+    @ClientListener
+    public class InvalidationListener {
+
+        @ClientCacheEntryModified
+        public void modified(ClientCacheEntryModifiedEvent<String> event) {
+            invalidate(event.getKey());
+        }
+
+        @ClientCacheEntryRemoved
+        public void removed(ClientCacheEntryRemovedEvent<String> event) {
+            invalidate(event.getKey());
+        }
+
+        @ClientCacheEntryExpired
+        public void expired(ClientCacheEntryExpiredEvent<String> event) {
+            invalidate(event.getKey());
+        }
+
+        @ClientCacheFailover
+        public void failover(ClientCacheFailoverEvent event) {
+            clear();
+        }
+    }
+}
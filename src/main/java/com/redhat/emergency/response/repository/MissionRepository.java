@@ -1,91 +1,625 @@
 package com.redhat.emergency.response.repository;
 
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStatus;
+import com.redhat.emergency.response.model.ResponderLocationHistory;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.Search;
+import org.infinispan.commons.util.CloseableIterator;
+import org.infinispan.query.dsl.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The {@code Uni} returning methods only use the asynchronous Hot Rod operations, so they can be called from the
+ * message pipelines. The other methods wait for them and must not be called on an event loop thread.
+ */
 @ApplicationScoped
 public class MissionRepository {
 
+    private static final Logger log = LoggerFactory.getLogger(MissionRepository.class);
+
+    private static final int MAX_INDEX_UPDATE_ATTEMPTS = 10;
+
+    private static final int MAX_MISSION_UPDATE_ATTEMPTS = 10;
+
+    private static final String COMPLETED_SUFFIX = ":completed";
+
+    /**
+     * Entry of the responder index holding the version of the indexes, the indexes are rebuilt when it differs.
+     */
+    private static final String INDEX_VERSION_KEY = "_version";
+
+    private static final String INDEX_VERSION = "3";
+
+    private static final int ITERATION_BATCH_SIZE = 100;
+
+    private static final Set<String> ACTIVE_STATUSES = Set.of(MissionStatus.CREATED.name(), MissionStatus.UPDATED.name());
+
     @Inject
     RemoteCacheManager cacheManager;
-    
-    private static final Logger log = LoggerFactory.getLogger(MissionRepository.class);
-    //    private static final ConcurrentHashMap<String, Mission> repository = new ConcurrentHashMap<>();
 
-    RemoteCache<String, String> missionCache;
+    @Inject
+    LocationHistoryRepository historyRepository;
+
+    @Inject
+    MissionNearCache nearCache;
+
+    @ConfigProperty(name = "infinispan.cache.name.mission", defaultValue = "mission")
+    String cacheName;
+
+    @ConfigProperty(name = "infinispan.cache.name.mission-responder-index", defaultValue = "mission-responder-index")
+    String responderIndexCacheName;
+
+    @ConfigProperty(name = "infinispan.cache.name.mission-status-index", defaultValue = "mission-status-index")
+    String statusIndexCacheName;
+
+    @ConfigProperty(name = "infinispan.cache.name.mission-archive", defaultValue = "mission-archive")
+    String archiveCacheName;
+
+    /**
+     * When enabled, completed and failed missions are moved from the mission cache to the archive cache, where they
+     * expire after {@code lifespan} ms, or never with a negative lifespan. The mission cache then only holds active
+     * missions. Archived missions are still found by {@link #get} and {@link #forEach}, {@link #getAll} only returns
+     * the missions of the mission cache.
+     */
+    @ConfigProperty(name = "mission.archive.enabled", defaultValue = "false")
+    boolean archiveEnabled;
+
+    @ConfigProperty(name = "mission.archive.lifespan", defaultValue = "86400000")
+    long archiveLifespan;
+
+    /**
+     * Completed and failed missions kept in the responder index per responder, the most recent ones.
+     */
+    @ConfigProperty(name = "mission.responder-index.max-completed", defaultValue = "10")
+    int maxCompleted;
+
+    /**
+     * Missions are stored as ProtoStream encoded {@link Mission} entries. Entries written by previous versions of the
+     * service are JSON strings; they are still decoded on read and replaced by the binary form the next time the
+     * mission is written.
+     * <p>
+     * The location history of an active mission is kept in the {@link LocationHistoryRepository} and merged on read;
+     * it is embedded in the mission entry once the mission is completed or failed.
+     */
+    RemoteCache<String, Object> missionCache;
+
+    /**
+     * Secondary index: responderId -> JSON array of the keys of the active missions of that responder, and
+     * responderId{@value #COMPLETED_SUFFIX} -> JSON array of the keys of its last {@code max-completed} completed or
+     * failed missions, when the archive is disabled. Lets {@link #getByResponderId(String)} fetch only the missions of
+     * one responder instead of scanning the grid.
+     */
+    RemoteCache<String, String> responderIndexCache;
+
+    /**
+     * Secondary index: mission key -> {@link MissionStatusEntry} for missions with an active status ({@code CREATED},
+     * {@code UPDATED}), queried by status. Completed and failed missions are removed from it, so that it only holds the
+     * working set of active missions. The {@code status} field is indexed when the cache is defined with indexing of
+     * {@code mission.MissionStatusEntry}, otherwise queries scan the index cache.
+     */
+    RemoteCache<String, MissionStatusEntry> statusIndexCache;
+
+    /**
+     * Completed and failed missions, when the archive is enabled, otherwise null.
+     */
+    RemoteCache<String, Mission> archiveCache;
 
     void onStart(@Observes StartupEvent e) {
         log.info("Creating remote cache '" + cacheName + "'" );
-        missionCache = initCache();
+        missionCache = initCache("mission", cacheName);
+        nearCache.listen(missionCache);
+        log.info("Creating remote cache '" + responderIndexCacheName + "'" );
+        responderIndexCache = initCache("mission-responder-index", responderIndexCacheName);
+        log.info("Creating remote cache '" + statusIndexCacheName + "'" );
+        statusIndexCache = initCache("mission-status-index", statusIndexCacheName);
+        if (archiveEnabled) {
+            log.info("Creating remote cache '" + archiveCacheName + "', archived missions expire after " + archiveLifespan + " ms");
+            archiveCache = initCache("mission-archive", archiveCacheName);
+        }
+        rebuildIndexes();
     }
-    
-    @ConfigProperty(name = "infinispan.cache.name.mission", defaultValue = "mission")
-    String cacheName;
-    private RemoteCache<String, String> initCache() {
-        Configuration configuration = Configuration.builder().name("mission").mode("SYNC").owners(2).build();
-        return cacheManager.administration().getOrCreateCache(cacheName, configuration);
+
+    /**
+     * Indexes the missions written before the indexes had their current form, once per grid. Indexing is idempotent,
+     * nodes starting together may both rebuild the indexes. Active missions written before the location history was
+     * split out get an empty history, so that their locations are appended to it.
+     */
+    private void rebuildIndexes() {
+        if (INDEX_VERSION.equals(responderIndexCache.get(INDEX_VERSION_KEY))) {
+            return;
+        }
+        log.info("Rebuilding the mission indexes");
+        // entries of the previous form of the status index, a JSON array of mission keys per status
+        ACTIVE_STATUSES.forEach(statusIndexCache::remove);
+        int count = 0;
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = missionCache.retrieveEntries(null, ITERATION_BATCH_SIZE)) {
+            while (entries.hasNext()) {
+                Map.Entry<Object, Object> entry = entries.next();
+                Mission mission = decode((String) entry.getKey(), entry.getValue());
+                if (mission != null) {
+                    index(mission).await().indefinitely();
+                    if (mission.isActive()) {
+                        historyRepository.createAsync(mission.getKey()).await().indefinitely();
+                    }
+                    count++;
+                }
+            }
+        }
+        responderIndexCache.put(INDEX_VERSION_KEY, INDEX_VERSION);
+        log.info("Indexed " + count + " missions");
+    }
+
+    /**
+     * @param cache the cache as named in the {@code infinispan.cache.<cache>.*} properties, see {@link Configuration#fromConfig}
+     */
+    private <V> RemoteCache<String, V> initCache(String cache, String name) {
+        Configuration configuration = Configuration.fromConfig(cache, name);
+        return cacheManager.administration().getOrCreateCache(name, configuration);
     }
-    
+
+    /**
+     * Writes the mission entry, regardless of its current value. Changes to an existing mission go through
+     * {@link #update} instead, and location updates of active missions through {@link #appendLocation}.
+     */
     public void add(Mission mission) {
-        missionCache.put(mission.getKey(), mission.toJson());
+        addAsync(mission).await().indefinitely();
+    }
+
+    public Uni<Mission> addAsync(Mission mission) {
+        String key = mission.getKey();
+        return Uni.createFrom().completionStage(() -> missionCache.putAsync(key, mission))
+                .onItem().invoke(previous -> nearCache.invalidate(key))
+                .onItem().produceUni(previous -> index(mission))
+                .onItem().produceUni(v -> mission.isActive() ? historyRepository.createAsync(key) : historyRepository.removeAsync(key))
+                .onItem().produceUni(v -> archive(mission))
+                .onItem().apply(v -> mission);
+    }
+
+    /**
+     * Applies {@code updater} to the current mission and writes the result only if the mission entry was not written
+     * by someone else in the meantime, otherwise the update is retried on the new value. The updater can be called more
+     * than once and must only modify the mission it is given.
+     *
+     * @return the updated mission, or empty if there is no mission with that key
+     * @throws IllegalStateException if the mission could not be updated after a bounded number of attempts
+     */
+    public Optional<Mission> update(String key, Function<Mission, Mission> updater) {
+        return Optional.ofNullable(updateAsync(key, updater).await().indefinitely());
+    }
+
+    /**
+     * Asynchronous variant of {@link #update}.
+     *
+     * @return the updated mission, or a null item if there is no mission with that key
+     */
+    public Uni<Mission> updateAsync(String key, Function<Mission, Mission> updater) {
+        return tryUpdate(key, updater, 0);
+    }
+
+    private Uni<Mission> tryUpdate(String key, Function<Mission, Mission> updater, int attempt) {
+        if (attempt >= MAX_MISSION_UPDATE_ATTEMPTS) {
+            return Uni.createFrom().failure(new IllegalStateException("Could not update mission with key = " + key
+                    + " after " + MAX_MISSION_UPDATE_ATTEMPTS + " attempts"));
+        }
+        return Uni.createFrom().completionStage(() -> missionCache.getWithMetadataAsync(key)).onItem().produceUni(current -> {
+            Mission mission = current == null ? null : decode(key, current.getValue());
+            if (mission == null) {
+                return Uni.createFrom().<Mission>nullItem();
+            }
+            return withHistoryAsync(mission).onItem().apply(updater).onItem().produceUni(updated ->
+                    Uni.createFrom().completionStage(() -> missionCache.replaceWithVersionAsync(key, updated, current.getVersion()))
+                            .onItem().produceUni(replaced -> {
+                                if (!replaced) {
+                                    return tryUpdate(key, updater, attempt + 1);
+                                }
+                                nearCache.invalidate(key);
+                                Uni<Void> history = updated.isActive() ? Uni.createFrom().nullItem() : historyRepository.removeAsync(key);
+                                return history.onItem().produceUni(v -> index(updated))
+                                        .onItem().produceUni(v -> archive(updated)).onItem().apply(v -> updated);
+                            }));
+        });
+    }
+
+    public boolean exists(String key) {
+        return existsAsync(key).await().indefinitely();
+    }
+
+    public Uni<Boolean> existsAsync(String key) {
+        if (nearCache.isEnabled()) {
+            return getDecoded(key).onItem().apply(Objects::nonNull);
+        }
+        return Uni.createFrom().completionStage(() -> missionCache.containsKeyAsync(key));
+    }
+
+    public void appendLocation(String key, ResponderLocationHistory location, boolean force) {
+        historyRepository.append(key, location, force);
+    }
+
+    public Uni<Void> appendLocationAsync(String key, ResponderLocationHistory location, boolean force) {
+        return historyRepository.appendAsync(key, location, force);
+    }
+
+    public Uni<Void> appendLocationsAsync(String key, List<ResponderLocationHistory> locations, boolean force) {
+        return historyRepository.appendAllAsync(key, locations, force);
+    }
+
+    /**
+     * Appends locations to the history of several missions with a single write.
+     */
+    public Uni<Void> appendLocationsAsync(Map<String, List<ResponderLocationHistory>> locations) {
+        return historyRepository.appendAllAsync(locations);
     }
 
     public Optional<Mission> get(String key) {
-	return Optional.ofNullable(missionCache.get(key)).map(s -> {
-            Mission mission = null;
-            try {
-                mission = Json.decodeValue(s, Mission.class);
-            } catch (DecodeException e) {
-                log.error("Exception decoding mission with id = " + key, e);
+        return Optional.ofNullable(getAsync(key).await().indefinitely());
+    }
+
+    /**
+     * @return the mission, or a null item if there is no mission with that key
+     */
+    public Uni<Mission> getAsync(String key) {
+        return getDecoded(key).onItem().produceUni(mission -> {
+            if (mission != null) {
+                return withHistoryAsync(mission);
             }
-            return mission;
+            return archiveCache == null ? Uni.createFrom().<Mission>nullItem()
+                    : Uni.createFrom().completionStage(() -> archiveCache.getAsync(key));
         });
     }
 
+    /**
+     * @return the missions of the mission cache, archived missions are not included, use
+     * {@link #forEach(int, int, Predicate)} to iterate over them
+     */
     public List<Mission> getAll() {
-        return new ArrayList<>(missionCache.values().stream().map(s -> {
-		    Mission mission = null;
-		    try {
-			mission = Json.decodeValue(s, Mission.class);
-		    } catch (DecodeException e) {
-			log.error("Exception decoding mission " + e);
-		    }
-		    return mission;
-		}).filter(Objects::nonNull).collect(Collectors.toList()));
+        return missionCache.values().stream().map(s -> decode(null, s)).filter(Objects::nonNull).map(this::withHistory)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param status an active status, {@code CREATED} or {@code UPDATED}; completed and failed missions are not indexed,
+     *               use {@link #forEach(Predicate, int, int, Predicate)} for them
+     */
+    public List<Mission> getByStatus(MissionStatus status) {
+        return getByStatusAsync(status).await().indefinitely();
+    }
+
+    public Uni<List<Mission>> getByStatusAsync(MissionStatus status) {
+        if (!ACTIVE_STATUSES.contains(status.name())) {
+            return Uni.createFrom().failure(new IllegalArgumentException("Missions with status " + status + " are not indexed"));
+        }
+        return queryStatusIndex("status = :status", Map.of("status", status.name()))
+                .onItem().produceUni(keys -> getAll(keys, m -> status.name().equals(m.getStatus())));
+    }
+
+    /**
+     * @return the missions with status {@code CREATED} or {@code UPDATED}
+     */
+    public List<Mission> getActive() {
+        return getActiveAsync().await().indefinitely();
+    }
+
+    public Uni<List<Mission>> getActiveAsync() {
+        return queryStatusIndex("status = :created or status = :updated",
+                Map.of("created", MissionStatus.CREATED.name(), "updated", MissionStatus.UPDATED.name()))
+                .onItem().produceUni(keys -> getAll(keys, m -> ACTIVE_STATUSES.contains(m.getStatus())));
+    }
+
+    /**
+     * The Hot Rod client only runs queries synchronously, the query runs on the worker pool.
+     *
+     * @return the keys of the missions whose status index entry matches {@code condition}
+     */
+    private Uni<Set<String>> queryStatusIndex(String condition, Map<String, Object> parameters) {
+        Query query = Search.getQueryFactory(statusIndexCache)
+                .create("SELECT missionKey FROM mission.MissionStatusEntry WHERE " + condition).setParameters(parameters);
+        return Uni.createFrom().item(() -> query.<Object[]>list().stream().map(row -> (String) row[0]).collect(Collectors.toSet()))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * Passes the missions to {@code consumer} as they are read from the grid, {@value #ITERATION_BATCH_SIZE} entries at
+     * a time, so that the missions do not have to be held in memory together. The first {@code offset} entries are
+     * skipped and iteration stops after {@code limit} missions, or as soon as {@code consumer} returns false. Entries
+     * come in the iteration order of the cache, which is stable as long as the cluster topology and the content of the
+     * cache do not change.
+     */
+    public void forEach(int offset, int limit, Predicate<Mission> consumer) {
+        forEach(m -> true, offset, limit, consumer);
+    }
+
+    /**
+     * Same as {@link #forEach(int, int, Predicate)}, for the missions matching {@code filter} only; {@code offset} counts
+     * matching missions. This scans the whole cache, then the archive.
+     */
+    public void forEach(Predicate<Mission> filter, int offset, int limit, Predicate<Mission> consumer) {
+        int[] position = {0};
+        int count = forEach(missionCache, filter, offset, limit, position, consumer);
+        if (archiveCache != null && count < limit) {
+            forEach(archiveCache, filter, offset, limit - count, position, consumer);
+        }
+    }
+
+    /**
+     * @param position matching missions seen so far, carried over from one cache to the next
+     * @return the number of missions passed to {@code consumer}
+     */
+    private int forEach(RemoteCache<String, ?> cache, Predicate<Mission> filter, int offset, int limit, int[] position,
+                        Predicate<Mission> consumer) {
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = cache.retrieveEntries(null, ITERATION_BATCH_SIZE)) {
+            int count = 0;
+            while (count < limit && entries.hasNext()) {
+                Map.Entry<Object, Object> entry = entries.next();
+                Mission mission = decode((String) entry.getKey(), entry.getValue());
+                if (mission == null || !filter.test(mission) || isArchived(cache, mission) || position[0]++ < offset) {
+                    continue;
+                }
+                count++;
+                if (!consumer.test(withHistory(mission))) {
+                    // the caller stops the iteration, the archive is not scanned either
+                    return limit;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Same as {@link #forEach(int, int, Predicate)}, for the missions with one of the active {@code statuses}, found
+     * through the status index a page of {@value #ITERATION_BATCH_SIZE} keys at a time, ordered, skipped and limited by
+     * the query. Missions come in key order.
+     *
+     * @param statuses active statuses, {@code CREATED} or {@code UPDATED}
+     */
+    public void forEachActive(Set<MissionStatus> statuses, int offset, int limit, Predicate<Mission> consumer) {
+        if (!statuses.stream().map(MissionStatus::name).allMatch(ACTIVE_STATUSES::contains)) {
+            throw new IllegalArgumentException("Missions with status " + statuses + " are not indexed");
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        for (MissionStatus status : statuses) {
+            parameters.put(status.name().toLowerCase(), status.name());
+            conditions.add("status = :" + status.name().toLowerCase());
+        }
+        String condition = String.join(" or ", conditions);
+        Set<String> names = statuses.stream().map(MissionStatus::name).collect(Collectors.toSet());
+        int position = offset;
+        int remaining = limit;
+        while (remaining > 0) {
+            int pageSize = Math.min(ITERATION_BATCH_SIZE, remaining);
+            List<String> keys = queryStatusIndexPage(condition, parameters, position, pageSize).await().indefinitely();
+            List<Mission> missions = new ArrayList<>(getAll(new HashSet<>(keys), m -> names.contains(m.getStatus()))
+                    .await().indefinitely());
+            missions.sort(Comparator.comparing(Mission::getKey));
+            for (Mission mission : missions) {
+                if (!consumer.test(mission)) {
+                    return;
+                }
+            }
+            if (keys.size() < pageSize) {
+                return;
+            }
+            position += keys.size();
+            remaining -= keys.size();
+        }
+    }
+
+    /**
+     * Same as {@link #queryStatusIndex}, for one page of the keys in key order. Sorting on {@code missionKey} needs the
+     * field to be sortable in the index, see {@code mission.proto}.
+     */
+    private Uni<List<String>> queryStatusIndexPage(String condition, Map<String, Object> parameters, int offset, int maxResults) {
+        Query query = Search.getQueryFactory(statusIndexCache)
+                .create("SELECT missionKey FROM mission.MissionStatusEntry WHERE " + condition + " ORDER BY missionKey")
+                .setParameters(parameters).startOffset(offset).maxResults(maxResults);
+        return Uni.createFrom().item(() -> query.<Object[]>list().stream().map(row -> (String) row[0]).collect(Collectors.toList()))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
     }
 
     public void clear() {
         missionCache.clear();
+        nearCache.clear();
+        responderIndexCache.clear();
+        statusIndexCache.clear();
+        responderIndexCache.put(INDEX_VERSION_KEY, INDEX_VERSION);
+        historyRepository.clear();
+        if (archiveCache != null) {
+            archiveCache.clear();
+        }
     }
 
     public List<Mission> getByResponderId(String responderId) {
-         return missionCache.values().stream().map(s -> {
-            Mission mission = null;
+        return getByResponderIdAsync(responderId).await().indefinitely();
+    }
+
+    public Uni<List<Mission>> getByResponderIdAsync(String responderId) {
+        return Uni.createFrom().completionStage(() -> responderIndexCache.getAllAsync(Set.of(responderId, responderId + COMPLETED_SUFFIX)))
+                .onItem().produceUni(indexes -> {
+                    Set<String> keys = indexes.values().stream().flatMap(k -> new JsonArray(k).stream())
+                            .map(String.class::cast).collect(Collectors.toSet());
+                    return getAll(keys, m -> responderId.equals(m.getResponderId()));
+                });
+    }
+
+    /**
+     * @param filter rechecks the indexed value, the index can be behind the mission entries
+     */
+    private Uni<List<Mission>> getAll(Set<String> missionKeys, Predicate<Mission> filter) {
+        if (missionKeys.isEmpty()) {
+            return Uni.createFrom().item(Collections.<Mission>emptyList());
+        }
+        return Uni.createFrom().completionStage(() -> missionCache.getAllAsync(missionKeys)).onItem().produceUni(values -> {
+            List<Uni<Mission>> missions = values.entrySet().stream().map(e -> decode(e.getKey(), e.getValue()))
+                    .filter(Objects::nonNull).filter(filter).map(this::withHistoryAsync).collect(Collectors.toList());
+            if (missions.isEmpty()) {
+                return Uni.createFrom().item(Collections.<Mission>emptyList());
+            }
+            return Uni.combine().all().unis(missions).combinedWith(list -> list.stream().map(Mission.class::cast)
+                    .collect(Collectors.toList()));
+        });
+    }
+
+    /**
+     * @return the mission entry without the history of an active mission, from the near cache when enabled
+     */
+    private Uni<Mission> getDecoded(String key) {
+        Mission cached = nearCache.get(key);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+        long token = nearCache.token();
+        return Uni.createFrom().completionStage(() -> missionCache.getAsync(key)).onItem().apply(value -> {
+            Mission mission = value == null ? null : decode(key, value);
+            if (mission != null) {
+                nearCache.put(key, mission, token);
+            }
+            return mission;
+        });
+    }
+
+    private Mission withHistory(Mission mission) {
+        return withHistoryAsync(mission).await().indefinitely();
+    }
+
+    private Uni<Mission> withHistoryAsync(Mission mission) {
+        if (!mission.isActive()) {
+            return Uni.createFrom().item(mission);
+        }
+        return historyRepository.getAsync(mission.getKey()).onItem().apply(history -> {
+            // missions written before the history was split out still carry it in the mission entry
+            if (!history.isEmpty() || mission.getResponderLocationHistory().isEmpty()) {
+                mission.responderLocationHistory(history);
+            }
+            return mission;
+        });
+    }
+
+    /**
+     * A completed or failed mission is left in the mission cache when it was archived but its removal from the mission
+     * cache failed. It is skipped there, the archived copy is returned from the archive.
+     */
+    private boolean isArchived(RemoteCache<String, ?> cache, Mission mission) {
+        return cache == missionCache && archiveCache != null && !mission.isActive() && archiveCache.containsKey(mission.getKey());
+    }
+
+    /**
+     * Moves a completed or failed mission to the archive cache. The mission is written to the archive before it is
+     * removed from the mission cache, so it is never missing from both; see {@link #isArchived} if the removal fails.
+     */
+    private Uni<Void> archive(Mission mission) {
+        if (archiveCache == null || mission.isActive()) {
+            return Uni.createFrom().nullItem();
+        }
+        String key = mission.getKey();
+        return Uni.createFrom().completionStage(() -> archiveCache.putAsync(key, mission, archiveLifespan, TimeUnit.MILLISECONDS))
+                .onItem().produceUni(previous -> Uni.createFrom().completionStage(() -> missionCache.removeAsync(key)))
+                .onItem().invoke(removed -> nearCache.invalidate(key))
+                .onItem().apply(removed -> null);
+    }
+
+    private Uni<Void> index(Mission mission) {
+        String key = mission.getKey();
+        String responderId = mission.getResponderId();
+        Uni<Void> responder;
+        if (mission.isActive()) {
+            responder = updateIndex(responderIndexCache, responderId, key, true, 0, 0);
+        } else {
+            // archived missions leave the responder index
+            Uni<Void> completed = archiveCache != null ? Uni.createFrom().nullItem()
+                    : updateIndex(responderIndexCache, responderId + COMPLETED_SUFFIX, key, true, maxCompleted, 0);
+            responder = completed.onItem().produceUni(v -> updateIndex(responderIndexCache, responderId, key, false, 0, 0));
+        }
+        String status = mission.getStatus();
+        Uni<Void> statusIndex = ACTIVE_STATUSES.contains(status)
+                ? Uni.createFrom().completionStage(() -> statusIndexCache.putAsync(key, new MissionStatusEntry(key, status))).onItem().apply(previous -> null)
+                : Uni.createFrom().completionStage(() -> statusIndexCache.removeAsync(key)).onItem().apply(previous -> null);
+        return responder.onItem().produceUni(v -> statusIndex);
+    }
+
+    /**
+     * Adds or removes a mission key in the JSON array of an index entry, with a versioned compare-and-swap.
+     *
+     * @param limit when adding, the oldest keys are dropped beyond {@code limit} keys; 0 for no limit
+     * @throws IllegalStateException if the index could not be updated after a bounded number of attempts
+     */
+    private Uni<Void> updateIndex(RemoteCache<String, String> index, String indexKey, String key, boolean add, int limit, int attempt) {
+        if (attempt >= MAX_INDEX_UPDATE_ATTEMPTS) {
+            return Uni.createFrom().failure(new IllegalStateException("Could not update index '" + index.getName()
+                    + "' for mission with key = " + key + " after " + MAX_INDEX_UPDATE_ATTEMPTS + " attempts"));
+        }
+        return Uni.createFrom().completionStage(() -> index.getWithMetadataAsync(indexKey)).onItem().produceUni(current -> {
+            Uni<Boolean> updated;
+            if (current == null) {
+                if (!add) {
+                    return Uni.createFrom().nullItem();
+                }
+                updated = Uni.createFrom().completionStage(() -> index.withFlags(Flag.FORCE_RETURN_VALUE)
+                        .putIfAbsentAsync(indexKey, new JsonArray().add(key).encode())).onItem().apply(Objects::isNull);
+            } else {
+                JsonArray missionKeys = new JsonArray(current.getValue());
+                if (missionKeys.contains(key) == add) {
+                    return Uni.createFrom().nullItem();
+                }
+                if (add) {
+                    missionKeys.add(key);
+                    while (limit > 0 && missionKeys.size() > limit) {
+                        missionKeys.remove(0);
+                    }
+                } else {
+                    missionKeys.remove(key);
+                }
+                updated = Uni.createFrom().completionStage(() ->
+                        index.replaceWithVersionAsync(indexKey, missionKeys.encode(), current.getVersion()));
+            }
+            return updated.onItem().produceUni(done -> done ? Uni.createFrom().<Void>nullItem()
+                    : updateIndex(index, indexKey, key, add, limit, attempt + 1));
+        });
+    }
+
+    private Mission decode(String key, Object value) {
+        if (value instanceof Mission) {
+            return (Mission) value;
+        }
+        Mission mission = null;
+        if (value instanceof String) {
             try {
-                mission = Json.decodeValue(s, Mission.class);
+                mission = Json.decodeValue((String) value, Mission.class);
             } catch (DecodeException e) {
-                log.error("Exception decoding mission", e);
+                log.error("Exception decoding mission with id = " + key, e);
             }
-            return mission;
-	     }).filter(Objects::nonNull).filter(m -> m.getResponderId().equals(responderId)).collect(Collectors.toList());
+        } else {
+            log.error("Unexpected value type " + value.getClass().getName() + " for mission with id = " + key);
+        }
+        return mission;
     }
 }
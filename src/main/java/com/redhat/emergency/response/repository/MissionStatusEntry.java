@@ -0,0 +1,24 @@
+package com.redhat.emergency.response.repository;
+
+/**
+ * Entry of the status index, one per active mission, queried by status.
+ */
+public class MissionStatusEntry {
+
+    private final String missionKey;
+
+    private final String status;
+
+    public MissionStatusEntry(String missionKey, String status) {
+        this.missionKey = missionKey;
+        this.status = status;
+    }
+
+    public String getMissionKey() {
+        return missionKey;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
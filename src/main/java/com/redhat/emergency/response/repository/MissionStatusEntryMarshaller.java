@@ -0,0 +1,48 @@
+package com.redhat.emergency.response.repository;
+
+import static com.redhat.emergency.response.repository.RawMessages.fieldNumber;
+
+import java.io.IOException;
+
+import org.infinispan.protostream.ImmutableSerializationContext;
+import org.infinispan.protostream.RawProtoStreamReader;
+import org.infinispan.protostream.RawProtoStreamWriter;
+import org.infinispan.protostream.RawProtobufMarshaller;
+
+public class MissionStatusEntryMarshaller implements RawProtobufMarshaller<MissionStatusEntry> {
+
+    @Override
+    public MissionStatusEntry readFrom(ImmutableSerializationContext ctx, RawProtoStreamReader in) throws IOException {
+        String missionKey = null;
+        String status = null;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (fieldNumber(tag)) {
+                case 1:
+                    missionKey = in.readString();
+                    break;
+                case 2:
+                    status = in.readString();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return new MissionStatusEntry(missionKey, status);
+    }
+
+    @Override
+    public void writeTo(ImmutableSerializationContext ctx, RawProtoStreamWriter out, MissionStatusEntry entry) throws IOException {
+        out.writeString(1, entry.getMissionKey());
+        out.writeString(2, entry.getStatus());
+    }
+
+    @Override
+    public Class<? extends MissionStatusEntry> getJavaClass() {
+        return MissionStatusEntry.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "mission.MissionStatusEntry";
+    }
+}
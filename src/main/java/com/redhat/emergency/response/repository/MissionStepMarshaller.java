@@ -0,0 +1,59 @@
+package com.redhat.emergency.response.repository;
+
+import static com.redhat.emergency.response.repository.RawMessages.fieldNumber;
+
+import java.io.IOException;
+
+import com.redhat.emergency.response.model.MissionStep;
+import org.infinispan.protostream.ImmutableSerializationContext;
+import org.infinispan.protostream.RawProtoStreamReader;
+import org.infinispan.protostream.RawProtoStreamWriter;
+import org.infinispan.protostream.RawProtobufMarshaller;
+
+public class MissionStepMarshaller implements RawProtobufMarshaller<MissionStep> {
+
+    @Override
+    public MissionStep readFrom(ImmutableSerializationContext ctx, RawProtoStreamReader in) throws IOException {
+        double lat = 0;
+        double lon = 0;
+        boolean wayPoint = false;
+        boolean destination = false;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (fieldNumber(tag)) {
+                case 1:
+                    lat = in.readDouble();
+                    break;
+                case 2:
+                    lon = in.readDouble();
+                    break;
+                case 3:
+                    wayPoint = in.readBool();
+                    break;
+                case 4:
+                    destination = in.readBool();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return MissionStep.builder(lat, lon).wayPoint(wayPoint).destination(destination).build();
+    }
+
+    @Override
+    public void writeTo(ImmutableSerializationContext ctx, RawProtoStreamWriter out, MissionStep step) throws IOException {
+        out.writeDouble(1, step.getLat());
+        out.writeDouble(2, step.getLon());
+        out.writeBool(3, step.isWayPoint());
+        out.writeBool(4, step.isDestination());
+    }
+
+    @Override
+    public Class<? extends MissionStep> getJavaClass() {
+        return MissionStep.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "mission.MissionStep";
+    }
+}
@@ -0,0 +1,31 @@
+package com.redhat.emergency.response.repository;
+
+import java.io.IOException;
+
+import org.infinispan.protostream.ImmutableSerializationContext;
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.RawProtoStreamReader;
+import org.infinispan.protostream.RawProtoStreamWriter;
+
+/**
+ * Helpers for the marshallers, which read and write the fields of {@code META-INF/mission.proto} by number.
+ */
+final class RawMessages {
+
+    private RawMessages() {}
+
+    /**
+     * @return the field number of a tag read with {@link RawProtoStreamReader#readTag()}
+     */
+    static int fieldNumber(int tag) {
+        return tag >>> 3;
+    }
+
+    static <T> T readMessage(ImmutableSerializationContext ctx, RawProtoStreamReader in, Class<T> type) throws IOException {
+        return ProtobufUtil.fromByteArray(ctx, in.readByteArray(), type);
+    }
+
+    static void writeMessage(ImmutableSerializationContext ctx, RawProtoStreamWriter out, int fieldNumber, Object message) throws IOException {
+        out.writeBytes(fieldNumber, ProtobufUtil.toByteArray(ctx, message));
+    }
+}
@@ -0,0 +1,54 @@
+package com.redhat.emergency.response.repository;
+
+import static com.redhat.emergency.response.repository.RawMessages.fieldNumber;
+
+import java.io.IOException;
+
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import org.infinispan.protostream.ImmutableSerializationContext;
+import org.infinispan.protostream.RawProtoStreamReader;
+import org.infinispan.protostream.RawProtoStreamWriter;
+import org.infinispan.protostream.RawProtobufMarshaller;
+
+public class ResponderLocationHistoryMarshaller implements RawProtobufMarshaller<ResponderLocationHistory> {
+
+    @Override
+    public ResponderLocationHistory readFrom(ImmutableSerializationContext ctx, RawProtoStreamReader in) throws IOException {
+        double lat = 0;
+        double lon = 0;
+        long timestamp = 0;
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (fieldNumber(tag)) {
+                case 1:
+                    lat = in.readDouble();
+                    break;
+                case 2:
+                    lon = in.readDouble();
+                    break;
+                case 3:
+                    timestamp = in.readInt64();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return new ResponderLocationHistory(lat, lon, timestamp);
+    }
+
+    @Override
+    public void writeTo(ImmutableSerializationContext ctx, RawProtoStreamWriter out, ResponderLocationHistory rlh) throws IOException {
+        out.writeDouble(1, rlh.getLat());
+        out.writeDouble(2, rlh.getLon());
+        out.writeInt64(3, rlh.getTimestamp());
+    }
+
+    @Override
+    public Class<? extends ResponderLocationHistory> getJavaClass() {
+        return ResponderLocationHistory.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "mission.ResponderLocationHistory";
+    }
+}
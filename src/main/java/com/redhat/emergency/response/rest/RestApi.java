@@ -1,29 +1,141 @@
 package com.redhat.emergency.response.rest;
 
-import java.util.List;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStatus;
 import com.redhat.emergency.response.repository.MissionRepository;
 import io.quarkus.vertx.web.Route;
 import io.quarkus.vertx.web.RoutingExchange;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @ApplicationScoped
 public class RestApi {
 
+    private static final Logger log = LoggerFactory.getLogger(RestApi.class);
+
     @Inject
     MissionRepository repository;
 
-    @Route(path = "/api/missions", methods = HttpMethod.GET, produces = "application/json")
+    /**
+     * Streams the missions as a chunked JSON array, written as they are read from the grid. The optional {@code offset}
+     * and {@code limit} query parameters select a page.
+     */
+    @Route(path = "/api/missions", methods = HttpMethod.GET, produces = "application/json", type = Route.HandlerType.BLOCKING)
     void allMissions(RoutingExchange ex) {
 
-        List<Mission> missions = repository.getAll();
-        ex.response().putHeader("Content-Type", "application/json")
-                .setStatusCode(200).end(Json.encode(missions));
+        stream(ex, repository::forEach);
+    }
+
+    /**
+     * Streams the active missions like {@link #allMissions}, read through the status index.
+     */
+    @Route(path = "/api/missions/active", methods = HttpMethod.GET, produces = "application/json", type = Route.HandlerType.BLOCKING)
+    void activeMissions(RoutingExchange ex) {
+
+        stream(ex, (offset, limit, consumer) -> repository.forEachActive(EnumSet.of(MissionStatus.CREATED, MissionStatus.UPDATED),
+                offset, limit, consumer));
+    }
+
+    /**
+     * Active statuses are read from the status index. Completed and failed missions are not indexed, they are streamed
+     * from a scan of the grid like {@link #allMissions}, with the same paging parameters.
+     */
+    @Route(path = "/api/missions/status/:status", methods = HttpMethod.GET, produces = "application/json", type = Route.HandlerType.BLOCKING)
+    void missionsByStatus(RoutingExchange ex) {
+
+        MissionStatus status;
+        try {
+            status = MissionStatus.valueOf(ex.getParam("status").orElse("").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            ex.response().setStatusCode(400).end();
+            return;
+        }
+        if (status == MissionStatus.CREATED || status == MissionStatus.UPDATED) {
+            stream(ex, (offset, limit, consumer) -> repository.forEachActive(EnumSet.of(status), offset, limit, consumer));
+        } else {
+            stream(ex, (offset, limit, consumer) -> repository.forEach(m -> status.name().equals(m.getStatus()), offset, limit, consumer));
+        }
+    }
+
+    /**
+     * Iteration stops as soon as the client closes the connection.
+     */
+    private void stream(RoutingExchange ex, MissionSource source) {
+        int offset;
+        int limit;
+        try {
+            offset = ex.getParam("offset").map(Integer::parseInt).orElse(0);
+            limit = ex.getParam("limit").map(Integer::parseInt).orElse(Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            ex.response().setStatusCode(400).end();
+            return;
+        }
+        if (offset < 0 || limit < 0) {
+            ex.response().setStatusCode(400).end();
+            return;
+        }
+        HttpServerResponse response = ex.response().putHeader("Content-Type", "application/json")
+                .setChunked(true).setStatusCode(200);
+        AtomicReference<CompletableFuture<Void>> drained = new AtomicReference<>(CompletableFuture.completedFuture(null));
+        response.closeHandler(v -> drained.get().complete(null));
+        response.write("[");
+        boolean[] first = {true};
+        Predicate<Mission> consumer = mission -> {
+            Buffer buffer = Buffer.buffer();
+            if (!first[0]) {
+                buffer.appendString(",");
+            }
+            first[0] = false;
+            return write(response, drained, buffer.appendString(mission.toJson()));
+        };
+        try {
+            source.forEach(offset, limit, consumer);
+        } catch (RuntimeException e) {
+            log.error("Exception streaming missions", e);
+            if (!response.closed()) {
+                response.close();
+            }
+            return;
+        }
+        if (response.closed()) {
+            log.debug("Client closed the connection, missions are no longer streamed");
+            return;
+        }
+        response.end("]");
+    }
+
+    /**
+     * Writes from the worker thread, waiting for the response to drain when the client does not keep up, so that
+     * missions are not queued in memory.
+     *
+     * @return false if the client closed the connection
+     */
+    private boolean write(HttpServerResponse response, AtomicReference<CompletableFuture<Void>> drained, Buffer buffer) {
+        if (response.writeQueueFull()) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            drained.set(future);
+            response.drainHandler(v -> future.complete(null));
+            if (response.writeQueueFull() && !response.closed()) {
+                future.join();
+            }
+        }
+        if (response.closed()) {
+            return false;
+        }
+        response.write(buffer);
+        return true;
     }
 
     @Route(path = "/api/missions/clear", methods = HttpMethod.POST)
@@ -45,4 +157,9 @@ public class RestApi {
             }, () -> ex.response().setStatusCode(204).end());
     }
 
+    @FunctionalInterface
+    private interface MissionSource {
+
+        void forEach(int offset, int limit, Predicate<Mission> consumer);
+    }
 }
@@ -0,0 +1,120 @@
+package com.redhat.emergency.response.sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.redhat.emergency.response.model.LocationHistory;
+import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStep;
+import com.redhat.emergency.response.model.MissionStepPolyline;
+
+/**
+ * Writes the outgoing messages straight from the model to UTF-8 JSON bytes, with the same fields as the Jackson
+ * mapping of {@link Mission}, without building a JSON tree. The output buffer is reused per thread.
+ */
+final class EventSerializer {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal.withInitial(() -> new ByteArrayBuilder(4096));
+
+    private EventSerializer() {}
+
+    /**
+     * @param polylineSteps write the steps as {@code encodedSteps}, see {@link MissionStepPolyline}
+     */
+    static byte[] missionEvent(String messageType, Mission mission, boolean polylineSteps) {
+        ByteArrayBuilder buffer = buffer();
+        try (JsonGenerator generator = FACTORY.createGenerator(buffer)) {
+            writeHeader(generator, messageType);
+            generator.writeFieldName("body");
+            writeMission(generator, mission, polylineSteps);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    static byte[] responderCommand(Mission mission, double lat, double lon, boolean person) {
+        ByteArrayBuilder buffer = buffer();
+        try (JsonGenerator generator = FACTORY.createGenerator(buffer)) {
+            writeHeader(generator, "UpdateResponderCommand");
+            generator.writeObjectFieldStart("body");
+            generator.writeObjectFieldStart("responder");
+            generator.writeStringField("id", mission.getResponderId());
+            generator.writeNumberField("latitude", lat);
+            generator.writeNumberField("longitude", lon);
+            generator.writeBooleanField("available", true);
+            generator.writeBooleanField("enrolled", !person);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void writeHeader(JsonGenerator generator, String messageType) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", UUID.randomUUID().toString());
+        generator.writeStringField("invokingService", "MissionService");
+        generator.writeNumberField("timestamp", Instant.now().toEpochMilli());
+        generator.writeStringField("messageType", messageType);
+    }
+
+    private static void writeMission(JsonGenerator generator, Mission mission, boolean polylineSteps) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", mission.getId());
+        generator.writeStringField("incidentId", mission.getIncidentId());
+        generator.writeStringField("responderId", mission.getResponderId());
+        generator.writeNumberField("responderStartLat", mission.getResponderStartLat());
+        generator.writeNumberField("responderStartLong", mission.getResponderStartLong());
+        generator.writeNumberField("incidentLat", mission.getIncidentLat());
+        generator.writeNumberField("incidentLong", mission.getIncidentLong());
+        generator.writeNumberField("destinationLat", mission.getDestinationLat());
+        generator.writeNumberField("destinationLong", mission.getDestinationLong());
+        generator.writeArrayFieldStart("responderLocationHistory");
+        LocationHistory history = mission.getResponderLocationHistory();
+        for (int i = 0; i < history.size(); i++) {
+            generator.writeStartObject();
+            generator.writeNumberField("lat", history.latitude(i));
+            generator.writeNumberField("lon", history.longitude(i));
+            generator.writeNumberField("timestamp", history.timestamp(i));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeStringField("status", mission.getStatus());
+        List<MissionStep> steps = mission.getSteps();
+        if (polylineSteps && MissionStepPolyline.isEncodable(steps)) {
+            generator.writeStringField("encodedSteps", MissionStepPolyline.encode(steps));
+            generator.writeNumberField("wayPointStep", MissionStepPolyline.wayPointIndex(steps));
+            generator.writeNumberField("destinationStep", MissionStepPolyline.destinationIndex(steps));
+        } else {
+            generator.writeArrayFieldStart("steps");
+            for (MissionStep step : steps) {
+                generator.writeStartObject();
+                generator.writeNumberField("lat", step.getLat());
+                generator.writeNumberField("lon", step.getLon());
+                generator.writeBooleanField("wayPoint", step.isWayPoint());
+                generator.writeBooleanField("destination", step.isDestination());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private static ByteArrayBuilder buffer() {
+        ByteArrayBuilder buffer = BUFFER.get();
+        buffer.reset();
+        return buffer;
+    }
+}
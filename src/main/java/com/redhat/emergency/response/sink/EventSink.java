@@ -1,19 +1,19 @@
 package com.redhat.emergency.response.sink;
 
-import java.math.BigDecimal;
-import java.time.Instant;
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 
 import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStepPolyline;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.infrastructure.Infrastructure;
-import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
 import io.smallrye.reactive.messaging.kafka.KafkaRecord;
-import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.eclipse.microprofile.reactive.messaging.Outgoing;
 import org.slf4j.Logger;
@@ -24,14 +24,48 @@ public class EventSink {
 
     private static final Logger log = LoggerFactory.getLogger(EventSink.class);
 
-    private final UnicastProcessor<Pair<String, JsonObject>> missionProcessor = UnicastProcessor.create();
-
-    private final UnicastProcessor<Pair<String, JsonObject>> responderProcessor = UnicastProcessor.create();
+    /**
+     * With {@code polyline}, the steps of missions in mission events are sent as {@code encodedSteps}, an encoded
+     * polyline (see {@link MissionStepPolyline}), with the indices {@code wayPointStep} and {@code destinationStep}
+     * instead of the {@code steps} array.
+     */
+    @ConfigProperty(name = "mission.event.steps-format", defaultValue = "json")
+    String stepsFormat;
+
+    /**
+     * Each outgoing channel queues at most {@code queue.capacity} messages waiting to be sent.
+     */
+    @ConfigProperty(name = "mission.event.queue.capacity", defaultValue = "1000")
+    int queueCapacity;
+
+    /**
+     * When the queue is full, a new message waits for room ({@code BLOCK}) or fails ({@code FAIL}). There is deliberately
+     * no strategy dropping queued messages, such as {@code DROP_OLDEST}: every mission event and responder command
+     * carries a state transition, and a dropped one would only show in a gauge and a log record while consumers keep a
+     * wrong mission state.
+     */
+    @ConfigProperty(name = "mission.event.queue.overflow-strategy", defaultValue = "BLOCK")
+    String overflowStrategy;
+
+    private OutgoingQueue<Pair<String, byte[]>> missionQueue;
+
+    private OutgoingQueue<Pair<String, byte[]>> responderQueue;
+
+    @PostConstruct
+    void init() {
+        OutgoingQueue.OverflowStrategy strategy = OutgoingQueue.OverflowStrategy.valueOf(overflowStrategy.toUpperCase());
+        missionQueue = new OutgoingQueue<>("mission-event", queueCapacity, strategy);
+        responderQueue = new OutgoingQueue<>("responder-command", queueCapacity, strategy);
+    }
 
     public Uni<Void> missionStarted(Mission mission) {
         return missionEvent(mission, "MissionStartedEvent");
     }
 
+    public Uni<Void> missionRouteReady(Mission mission) {
+        return missionEvent(mission, "MissionRouteReadyEvent");
+    }
+
     public Uni<Void> missionPickedUp(Mission mission) {
         return missionEvent(mission, "MissionPickedUpEvent");
     }
@@ -42,50 +76,47 @@ public class EventSink {
 
     public Uni<Void> missionEvent(Mission mission, String type) {
 
-        return Uni.createFrom().<Void>item(() -> {
-            missionProcessor.onNext(ImmutablePair.of(mission.getIncidentId(),
-                    initMessage(new JsonObject(), type).put("body", JsonObject.mapFrom(mission))));
-            return null;
-        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        return Uni.createFrom().deferred(() -> missionQueue.offer(ImmutablePair.of(mission.getIncidentId(),
+                EventSerializer.missionEvent(type, mission, "polyline".equals(stepsFormat)))));
     }
 
-    public Uni<Void> responderCommand(Mission mission, BigDecimal lat, BigDecimal lon, Boolean person) {
-        return Uni.createFrom().<Void>item(() -> {
-            responderProcessor.onNext(ImmutablePair.of(mission.getResponderId(),
-                    initMessage(new JsonObject(), "UpdateResponderCommand")
-                            .put("body", new JsonObject().put("responder", new JsonObject().put("id", mission.getResponderId())
-                            .put("latitude", lat.doubleValue()).put("longitude", lon.doubleValue()).put("available", true)
-                            .put("enrolled", !person)))));
-            return null;
-        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    public Uni<Void> responderCommand(Mission mission, double lat, double lon, Boolean person) {
+        return Uni.createFrom().deferred(() -> responderQueue.offer(ImmutablePair.of(mission.getResponderId(),
+                EventSerializer.responderCommand(mission, lat, lon, person))));
     }
 
     @Outgoing("mission-event")
-    public Multi<Message<String>> missionEvent() {
-        return missionProcessor.onItem().apply(p -> {
-            log.debug("Sending message to mission-event channel. Key: " + p.getLeft() + " - Message = " + p.getRight().encode());
+    public Multi<Message<byte[]>> missionEvent() {
+        return Multi.createFrom().publisher(missionQueue).onItem().apply(p -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Sending message to mission-event channel. Key: " + p.getLeft() + " - Message = " + new String(p.getRight(), StandardCharsets.UTF_8));
+            }
             return toMessage(p);
         });
     }
 
     @Outgoing("responder-command")
-    public Multi<Message<String>> responderCommand() {
-        return responderProcessor.onItem().apply(p -> {
-            log.debug("Sending message to responder-command channel. Key: " + p.getLeft() + " - Message = " + p.getRight().encode());
+    public Multi<Message<byte[]>> responderCommand() {
+        return Multi.createFrom().publisher(responderQueue).onItem().apply(p -> {
+            if (log.isDebugEnabled()) {
+                log.debug("Sending message to responder-command channel. Key: " + p.getLeft() + " - Message = " + new String(p.getRight(), StandardCharsets.UTF_8));
+            }
             return toMessage(p);
         });
     }
 
-    private Message<String> toMessage(Pair<String, JsonObject> keyPayloadPair) {
-        return KafkaRecord.of(keyPayloadPair.getLeft(), keyPayloadPair.getRight().encode());
+    @Gauge(name = "missionEventQueueSize", unit = MetricUnits.NONE, description = "Mission events waiting to be sent")
+    public int missionEventQueueSize() {
+        return missionQueue.size();
     }
 
-    private JsonObject initMessage(JsonObject json, String messageType) {
+    @Gauge(name = "responderCommandQueueSize", unit = MetricUnits.NONE, description = "Responder commands waiting to be sent")
+    public int responderCommandQueueSize() {
+        return responderQueue.size();
+    }
 
-        return json.put("id", UUID.randomUUID().toString())
-                .put("invokingService", "MissionService")
-                .put("timestamp", Instant.now().toEpochMilli())
-                .put("messageType", messageType);
+    private Message<byte[]> toMessage(Pair<String, byte[]> keyPayloadPair) {
+        return KafkaRecord.of(keyPayloadPair.getLeft(), keyPayloadPair.getRight());
     }
 
 }
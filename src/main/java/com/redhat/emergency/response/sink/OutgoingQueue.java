@@ -0,0 +1,175 @@
+package com.redhat.emergency.response.sink;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.smallrye.mutiny.Uni;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Bounded queue of the messages of an outgoing channel, published to the single subscriber of the channel as it
+ * requests them. When {@code capacity} messages are queued, {@link #offer} follows the {@link OverflowStrategy}.
+ * <p>
+ * Producers do not lock nor switch threads: messages go to a lock-free queue, and whichever thread finds the queue
+ * idle drains it, so the messages offered by one producer are published in order.
+ */
+final class OutgoingQueue<T> implements Publisher<T> {
+
+    enum OverflowStrategy {
+        /**
+         * The message waits for room in the queue; the returned {@code Uni} completes once it is queued.
+         */
+        BLOCK,
+        /**
+         * The message is rejected, the returned {@code Uni} fails.
+         */
+        FAIL
+    }
+
+    private final String channel;
+
+    private final int capacity;
+
+    private final OverflowStrategy strategy;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Waiting<T>> waiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Messages in {@code queue}, a producer reserves its slot before adding its message.
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Subscriber<? super T> subscriber;
+
+    OutgoingQueue(String channel, int capacity, OverflowStrategy strategy) {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.strategy = strategy;
+    }
+
+    Uni<Void> offer(T item) {
+        // once messages wait for room, new messages wait behind them
+        if (waitingCount.get() == 0) {
+            if (queued.incrementAndGet() <= capacity) {
+                queue.add(item);
+                drain();
+                return Uni.createFrom().nullItem();
+            }
+            queued.decrementAndGet();
+        }
+        switch (strategy) {
+            case BLOCK:
+                CompletableFuture<Void> admitted = new CompletableFuture<>();
+                waitingCount.incrementAndGet();
+                waiting.add(new Waiting<>(item, admitted));
+                drain();
+                return Uni.createFrom().completionStage(admitted);
+            default:
+                return Uni.createFrom().failure(new IllegalStateException("Outgoing queue of channel " + channel + " is full"));
+        }
+    }
+
+    /**
+     * @return the number of queued messages, including the messages waiting for room in the queue
+     */
+    int size() {
+        return queued.get() + waitingCount.get();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> s) {
+        if (subscriber != null) {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            s.onError(new IllegalStateException("Outgoing channel " + channel + " only allows one subscriber"));
+            return;
+        }
+        subscriber = s;
+        s.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    return;
+                }
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                subscriber = null;
+            }
+        });
+    }
+
+    /**
+     * Publishes queued messages while there is demand, after moving the messages waiting for room to the queue. Only
+     * one thread drains at a time, a thread arriving while another one drains makes it loop once more.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            admitWaiting();
+            Subscriber<? super T> s = subscriber;
+            while (s != null && requested.get() > 0) {
+                T item = queue.poll();
+                if (item == null) {
+                    break;
+                }
+                queued.decrementAndGet();
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                s.onNext(item);
+                admitWaiting();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Only called by the draining thread.
+     */
+    private void admitWaiting() {
+        Waiting<T> w;
+        while (queued.get() < capacity && (w = waiting.poll()) != null) {
+            queued.incrementAndGet();
+            waitingCount.decrementAndGet();
+            queue.add(w.item);
+            w.admitted.complete(null);
+        }
+    }
+
+    private static final class Waiting<T> {
+
+        private final T item;
+
+        private final CompletableFuture<Void> admitted;
+
+        private Waiting(T item, CompletableFuture<Void> admitted) {
+            this.item = item;
+            this.admitted = admitted;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.redhat.emergency.response.source;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.repository.Configuration;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional record of the ids of the commands already processed, so that a command redelivered by the broker is not
+ * processed twice. Ids of processed commands are kept for {@code ttl} ms, and at most {@code max-entries} of them in
+ * LRU order.
+ * <p>
+ * A command is claimed before it is processed, with a lease of {@code lease} ms, and only marked as done once it is
+ * processed. A command claimed by a node that stops before it is done is processed again once the lease expires; a
+ * redelivery arriving while the command is claimed waits for the claim to be done or to expire. A redelivery still
+ * waiting {@code lease} ms after its first wait fails: the claim was taken again since, by someone who processes it.
+ * <p>
+ * When {@code shared}, claims are also written to a grid cache, so that a command redelivered to another node after a
+ * rebalance is recognized as well.
+ */
+@ApplicationScoped
+public class CommandDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandDeduplicator.class);
+
+    static final String CLAIMED = "CLAIMED";
+
+    static final String DONE = "DONE";
+
+    @ConfigProperty(name = "mission.command.dedup.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "mission.command.dedup.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "mission.command.dedup.ttl", defaultValue = "3600000")
+    long ttl;
+
+    @ConfigProperty(name = "mission.command.dedup.lease", defaultValue = "30000")
+    long lease;
+
+    /**
+     * Time between two attempts to claim a command claimed by someone else.
+     */
+    @ConfigProperty(name = "mission.command.dedup.retry-interval", defaultValue = "1000")
+    long retryInterval;
+
+    @ConfigProperty(name = "mission.command.dedup.shared", defaultValue = "false")
+    boolean shared;
+
+    @ConfigProperty(name = "infinispan.cache.name.command", defaultValue = "command")
+    String cacheName;
+
+    @Inject
+    RemoteCacheManager cacheManager;
+
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private Map<String, Claim> claims;
+
+    RemoteCache<String, String> commandCache;
+
+    void onStart(@Observes StartupEvent e) {
+        if (!enabled) {
+            return;
+        }
+        log.info("Deduplicating commands for " + ttl + " ms, with max entries " + maxEntries);
+        claims = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claim> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (shared) {
+            log.info("Creating remote cache '" + cacheName + "'");
+            Configuration configuration = Configuration.fromConfig("command", cacheName);
+            commandCache = cacheManager.administration().getOrCreateCache(cacheName, configuration);
+        }
+    }
+
+    /**
+     * Claims the command id before the command is processed. The returned {@code Uni} waits while the command is
+     * claimed by someone else.
+     *
+     * @return true if the command is claimed and should be processed, false if it is already done. Commands without id
+     * are always processed. Fails with an {@link IllegalStateException} if the command is still claimed by someone else
+     * {@code lease} ms after the first wait.
+     */
+    Uni<Boolean> claim(String id) {
+        return claim(id, 0);
+    }
+
+    /**
+     * @param deadline time after which a command still claimed by someone else is given up, 0 before the first wait
+     */
+    private Uni<Boolean> claim(String id, long deadline) {
+        if (claims == null || id == null) {
+            return Uni.createFrom().item(true);
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Claim claim = claims.get(id);
+            if (claim != null && claim.expires > now) {
+                return claim.done ? duplicate(id) : retry(id, deadline);
+            }
+            claims.put(id, new Claim(false, now + lease));
+        }
+        if (commandCache == null) {
+            return Uni.createFrom().item(true);
+        }
+        return Uni.createFrom().completionStage(() -> commandCache.withFlags(Flag.FORCE_RETURN_VALUE)
+                .putIfAbsentAsync(id, CLAIMED, lease, TimeUnit.MILLISECONDS))
+                .onFailure().recoverWithItem(t -> {
+                    log.warn("Exception claiming command " + id + " in the grid, command is processed", t);
+                    return null;
+                })
+                .onItem().produceUni(previous -> {
+                    if (previous == null) {
+                        return Uni.createFrom().item(true);
+                    }
+                    synchronized (this) {
+                        claims.remove(id);
+                    }
+                    if (DONE.equals(previous)) {
+                        synchronized (this) {
+                            claims.put(id, new Claim(true, System.currentTimeMillis() + ttl));
+                        }
+                        return duplicate(id);
+                    }
+                    return retry(id, deadline);
+                });
+    }
+
+    /**
+     * Marks a claimed command as done, redeliveries of the command are then ignored for {@code ttl} ms.
+     */
+    Uni<Void> done(String id) {
+        if (claims == null || id == null) {
+            return Uni.createFrom().nullItem();
+        }
+        synchronized (this) {
+            claims.put(id, new Claim(true, System.currentTimeMillis() + ttl));
+        }
+        if (commandCache == null) {
+            return Uni.createFrom().nullItem();
+        }
+        return Uni.createFrom().completionStage(() -> commandCache.putAsync(id, DONE, ttl, TimeUnit.MILLISECONDS))
+                .onItem().<Void>apply(previous -> null)
+                .onFailure().recoverWithItem(t -> {
+                    log.warn("Exception marking command " + id + " as done in the grid", t);
+                    return null;
+                });
+    }
+
+    /**
+     * Forgets a claimed command id, so that the command is processed again when redelivered, e.g. after it failed.
+     */
+    void release(String id) {
+        if (claims == null || id == null) {
+            return;
+        }
+        synchronized (this) {
+            claims.remove(id);
+        }
+        if (commandCache != null) {
+            commandCache.removeAsync(id).exceptionally(t -> {
+                log.warn("Exception releasing command " + id + " in the grid", t);
+                return null;
+            });
+        }
+    }
+
+    @Gauge(name = "duplicateCommands", unit = MetricUnits.NONE, description = "Commands ignored as duplicates")
+    public long duplicates() {
+        return duplicates.get();
+    }
+
+    private Uni<Boolean> duplicate(String id) {
+        duplicates.incrementAndGet();
+        log.info("Command " + id + " was already processed, command is ignored");
+        return Uni.createFrom().item(false);
+    }
+
+    private Uni<Boolean> retry(String id, long deadline) {
+        long now = System.currentTimeMillis();
+        long giveUp = deadline == 0 ? now + lease : deadline;
+        if (now >= giveUp) {
+            log.warn("Command " + id + " is still being processed after " + lease + " ms, command is not processed");
+            return Uni.createFrom().failure(new IllegalStateException("Could not claim command " + id + " within "
+                    + lease + " ms"));
+        }
+        log.warn("Command " + id + " is being processed, waiting " + retryInterval + " ms");
+        return Uni.createFrom().completionStage(() -> CompletableFuture.runAsync(() -> {},
+                CompletableFuture.delayedExecutor(retryInterval, TimeUnit.MILLISECONDS)))
+                .onItem().produceUni(v -> claim(id, giveUp));
+    }
+
+    private static final class Claim {
+
+        private final boolean done;
+
+        private final long expires;
+
+        private Claim(boolean done, long expires) {
+            this.done = done;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.redhat.emergency.response.source;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.smallrye.mutiny.Uni;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes messages on a fixed number of lanes. Messages with the same key (the mission key) always go to the same
+ * lane and are processed one after the other, in order; messages of different lanes are processed in parallel. Each
+ * lane starts its messages on its own thread, and starts the next message once the {@code Uni} of the previous one
+ * completes, without waiting on the thread. A lane queues at most {@code queueSize} messages, a message submitted to a
+ * full lane waits for room.
+ * <p>
+ * Messages are acknowledged in the order they were submitted, so that a committed offset never gets ahead of a message
+ * still being processed on another lane. Once the processing of a message fails, neither that message nor any message
+ * submitted after it is acknowledged, and the next submission fails, which fails the channel like a failure without
+ * lanes does.
+ */
+final class KeyOrderedExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+    private final Lane[] lanes;
+
+    private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+
+    private volatile Throwable failure;
+
+    KeyOrderedExecutor(String name, int laneCount, int queueSize) {
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(name + "-" + i, queueSize);
+        }
+    }
+
+    /**
+     * @param key the key of the message, or null if there is nothing to process
+     * @param task processes the message
+     * @param ack acknowledges the message
+     * @return completes once the message is queued, or fails if the processing of a previous message failed
+     */
+    synchronized Uni<Void> submit(String key, Supplier<Uni<?>> task, Supplier<CompletionStage<Void>> ack) {
+        if (failure != null) {
+            return Uni.createFrom().failure(failure);
+        }
+        CompletableFuture<Void> processed;
+        CompletableFuture<Void> admitted;
+        if (key == null) {
+            processed = CompletableFuture.completedFuture(null);
+            admitted = processed;
+        } else {
+            processed = new CompletableFuture<>();
+            processed.whenComplete((v, t) -> {
+                if (t != null) {
+                    fail(key, t);
+                }
+            });
+            admitted = lanes[Math.floorMod(key.hashCode(), lanes.length)].submit(task, processed);
+        }
+        // a failed message fails the rest of the chain, no later message is acknowledged
+        acknowledged = acknowledged.thenCompose(v -> processed).thenCompose(v -> ack.get());
+        return Uni.createFrom().completionStage(admitted);
+    }
+
+    void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+    }
+
+    private void fail(String key, Throwable t) {
+        if (failure == null) {
+            log.error("Exception processing message with key = " + key + ", this and later messages are not acknowledged", t);
+            failure = t;
+        }
+    }
+
+    private static final class Lane {
+
+        /**
+         * Only starts the tasks of the lane, at most one task is dispatched at a time.
+         */
+        private final ThreadPoolExecutor executor;
+
+        private final int queueSize;
+
+        private final Queue<Job> jobs = new ArrayDeque<>();
+
+        private final Queue<Job> waiting = new ArrayDeque<>();
+
+        private boolean running;
+
+        private Lane(String name, int queueSize) {
+            this.queueSize = queueSize;
+            executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * @return completes once the job is queued
+         */
+        private CompletableFuture<Void> submit(Supplier<Uni<?>> task, CompletableFuture<Void> processed) {
+            Job job = new Job(task, processed);
+            Job next;
+            synchronized (this) {
+                if (jobs.size() >= queueSize) {
+                    waiting.add(job);
+                    return job.admitted;
+                }
+                jobs.add(job);
+                next = next();
+            }
+            job.admitted.complete(null);
+            start(next);
+            return job.admitted;
+        }
+
+        /**
+         * @return the job to start, or null if a job is running or there is no job
+         */
+        private Job next() {
+            if (running || jobs.isEmpty()) {
+                return null;
+            }
+            running = true;
+            return jobs.poll();
+        }
+
+        private void start(Job job) {
+            if (job == null) {
+                return;
+            }
+            executor.execute(() -> {
+                Uni<?> uni;
+                try {
+                    uni = job.task.get();
+                } catch (Throwable t) {
+                    done(job, t);
+                    return;
+                }
+                uni.subscribe().with(item -> done(job, null), t -> done(job, t));
+            });
+        }
+
+        private void done(Job job, Throwable t) {
+            Job admitted;
+            Job next;
+            synchronized (this) {
+                running = false;
+                admitted = waiting.isEmpty() ? null : waiting.poll();
+                if (admitted != null) {
+                    jobs.add(admitted);
+                }
+                next = next();
+            }
+            if (t == null) {
+                job.processed.complete(null);
+            } else {
+                job.processed.completeExceptionally(t);
+            }
+            if (admitted != null) {
+                admitted.admitted.complete(null);
+            }
+            start(next);
+        }
+    }
+
+    private static final class Job {
+
+        private final Supplier<Uni<?>> task;
+
+        private final CompletableFuture<Void> processed;
+
+        private final CompletableFuture<Void> admitted = new CompletableFuture<>();
+
+        private Job(Supplier<Uni<?>> task, CompletableFuture<Void> processed) {
+            this.task = task;
+            this.processed = processed;
+        }
+    }
+}
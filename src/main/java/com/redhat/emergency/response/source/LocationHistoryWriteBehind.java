@@ -0,0 +1,183 @@
+package com.redhat.emergency.response.source;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import io.smallrye.mutiny.Uni;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer for the locations of moving responders. The locations received within {@code window} ms are
+ * buffered per mission, in order, and the locations of all the missions updated in the window are handed to the writer
+ * at once, so that they are written together instead of one write per location.
+ * <p>
+ * Buffered locations are not visible to readers until they are written, a status change of a mission must
+ * {@link #flush} the mission first. Writes are serialized, so the locations of a mission are written in order. A
+ * failed write is retried up to {@code attempts} times, {@code window} ms apart. Once a write fails for good, no later
+ * write is made, {@link #flushed} fails for every later location, {@link #append} fails and {@link #failure} reports
+ * the failure.
+ */
+final class LocationHistoryWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationHistoryWriteBehind.class);
+
+    private final long window;
+
+    private final int attempts;
+
+    private final Function<Map<String, List<ResponderLocationHistory>>, Uni<Void>> writer;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "location-history-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ScheduledFuture<?> timer;
+
+    private Map<String, List<ResponderLocationHistory>> pending = new LinkedHashMap<>();
+
+    /**
+     * Completes when the currently buffered locations are written.
+     */
+    private CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+    /**
+     * Last write, the next write starts once it is done.
+     */
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    private volatile Throwable failure;
+
+    LocationHistoryWriteBehind(long window, int attempts, Function<Map<String, List<ResponderLocationHistory>>, Uni<Void>> writer) {
+        this.window = window;
+        this.attempts = attempts;
+        this.writer = writer;
+    }
+
+    /**
+     * Buffers the locations after the locations of the mission buffered in the current window.
+     *
+     * @return completes once the locations are buffered, or fails if a previous write failed
+     */
+    synchronized Uni<Void> append(String missionKey, List<ResponderLocationHistory> locations) {
+        if (failure != null) {
+            return Uni.createFrom().failure(failure);
+        }
+        pending.computeIfAbsent(missionKey, k -> new ArrayList<>()).addAll(locations);
+        if (timer == null) {
+            timer = scheduler.schedule(this::flushAll, window, TimeUnit.MILLISECONDS);
+        }
+        return Uni.createFrom().nullItem();
+    }
+
+    /**
+     * @return completes when the locations buffered so far are written
+     */
+    synchronized CompletionStage<Void> flushed() {
+        return pending.isEmpty() ? tail : flushed;
+    }
+
+    /**
+     * @return the failure of the last write, once it failed for good, or null
+     */
+    Throwable failure() {
+        return failure;
+    }
+
+    /**
+     * Writes the buffered locations of one mission now.
+     *
+     * @return completes when the locations are written, or fails if a previous write failed
+     */
+    Uni<Void> flush(String missionKey) {
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            if (failure != null) {
+                return Uni.createFrom().failure(failure);
+            }
+            List<ResponderLocationHistory> locations = pending.remove(missionKey);
+            written = locations == null ? tail : write(Map.of(missionKey, locations));
+        }
+        return Uni.createFrom().completionStage(written);
+    }
+
+    /**
+     * Writes the buffered locations and stops the timer.
+     *
+     * @return completes once all the locations are written
+     */
+    CompletableFuture<Void> close() {
+        CompletableFuture<Void> written = flushAll();
+        scheduler.shutdown();
+        return written;
+    }
+
+    private CompletableFuture<Void> flushAll() {
+        CompletableFuture<Void> written;
+        CompletableFuture<Void> current;
+        synchronized (this) {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            Map<String, List<ResponderLocationHistory>> locations = pending;
+            pending = new LinkedHashMap<>();
+            current = flushed;
+            flushed = new CompletableFuture<>();
+            written = write(locations);
+        }
+        return written.whenComplete((v, t) -> {
+            if (t == null) {
+                current.complete(null);
+            } else {
+                current.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * Called with the lock held, chains the write after the previous one. A failed write fails the rest of the chain.
+     */
+    private CompletableFuture<Void> write(Map<String, List<ResponderLocationHistory>> locations) {
+        if (locations.isEmpty()) {
+            return tail;
+        }
+        tail = tail.thenCompose(v -> attempt(locations, 1).whenComplete((result, t) -> {
+            if (t != null && failure == null) {
+                Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                log.error("Exception writing the locations of " + locations.size() + " missions, later locations are not written", cause);
+                failure = cause;
+            }
+        }));
+        return tail;
+    }
+
+    private CompletableFuture<Void> attempt(Map<String, List<ResponderLocationHistory>> locations, int attempt) {
+        return Uni.createFrom().deferred(() -> writer.apply(locations)).subscribeAsCompletionStage()
+                .handle((v, t) -> t instanceof CompletionException && t.getCause() != null ? t.getCause() : t).thenCompose(t -> {
+                    if (t == null) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (attempt >= attempts) {
+                        return CompletableFuture.failedFuture(t);
+                    }
+                    log.warn("Exception writing the locations of " + locations.size() + " missions, attempt " + attempt
+                            + " of " + attempts + ", retrying in " + window + " ms", t);
+                    return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(window, TimeUnit.MILLISECONDS))
+                            .thenCompose(v -> attempt(locations, attempt + 1));
+                });
+    }
+}
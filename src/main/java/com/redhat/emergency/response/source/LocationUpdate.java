@@ -0,0 +1,193 @@
+package com.redhat.emergency.response.source;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.redhat.emergency.response.model.ResponderLocationStatus;
+
+/**
+ * Responder location update, decoded from the JSON payload in one pass without building a JSON tree. Fields are
+ * checked as they are read, a payload with a missing, blank or mistyped field decodes to {@code null}.
+ * <p>
+ * Statuses other than {@code PICKEDUP} and {@code DROPPED} are moves.
+ */
+final class LocationUpdate {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final String responderId;
+
+    private final String missionId;
+
+    private final String incidentId;
+
+    private final ResponderLocationStatus status;
+
+    private final double lat;
+
+    private final double lon;
+
+    private final boolean human;
+
+    private LocationUpdate(String responderId, String missionId, String incidentId, ResponderLocationStatus status,
+                           double lat, double lon, boolean human) {
+        this.responderId = responderId;
+        this.missionId = missionId;
+        this.incidentId = incidentId;
+        this.status = status;
+        this.lat = lat;
+        this.lon = lon;
+        this.human = human;
+    }
+
+    /**
+     * @return the location update, or {@code null} if the payload is not a valid location update
+     * @throws IOException if the payload is not JSON
+     */
+    static LocationUpdate decode(String payload) throws IOException {
+        String responderId = null;
+        String missionId = null;
+        String incidentId = null;
+        ResponderLocationStatus status = null;
+        double lat = 0;
+        double lon = 0;
+        boolean hasLat = false;
+        boolean hasLon = false;
+        Boolean human = null;
+        boolean hasContinue = false;
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "responderId":
+                        if ((responderId = text(parser, token)) == null) {
+                            return null;
+                        }
+                        break;
+                    case "missionId":
+                        if ((missionId = text(parser, token)) == null) {
+                            return null;
+                        }
+                        break;
+                    case "incidentId":
+                        if ((incidentId = text(parser, token)) == null) {
+                            return null;
+                        }
+                        break;
+                    case "status":
+                        if ((status = status(parser, token)) == null) {
+                            return null;
+                        }
+                        break;
+                    case "lat":
+                        if (!token.isNumeric()) {
+                            return null;
+                        }
+                        lat = parser.getDoubleValue();
+                        hasLat = true;
+                        break;
+                    case "lon":
+                        if (!token.isNumeric()) {
+                            return null;
+                        }
+                        lon = parser.getDoubleValue();
+                        hasLon = true;
+                        break;
+                    case "human":
+                        if (!token.isBoolean()) {
+                            return null;
+                        }
+                        human = token == JsonToken.VALUE_TRUE;
+                        break;
+                    case "continue":
+                        if (!token.isBoolean()) {
+                            return null;
+                        }
+                        hasContinue = true;
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        if (responderId == null || missionId == null || incidentId == null || status == null || !hasLat || !hasLon
+                || human == null || !hasContinue) {
+            return null;
+        }
+        return new LocationUpdate(responderId, missionId, incidentId, status, lat, lon, human);
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            return null;
+        }
+        String text = parser.getText();
+        return text.isBlank() ? null : text;
+    }
+
+    private static ResponderLocationStatus status(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            return null;
+        }
+        String text = parser.getText();
+        if (text.isBlank()) {
+            return null;
+        }
+        switch (text) {
+            case "PICKEDUP":
+                return ResponderLocationStatus.PICKEDUP;
+            case "DROPPED":
+                return ResponderLocationStatus.DROPPED;
+            default:
+                return ResponderLocationStatus.MOVING;
+        }
+    }
+
+    String key() {
+        return incidentId + ":" + responderId;
+    }
+
+    String getResponderId() {
+        return responderId;
+    }
+
+    String getMissionId() {
+        return missionId;
+    }
+
+    String getIncidentId() {
+        return incidentId;
+    }
+
+    ResponderLocationStatus getStatus() {
+        return status;
+    }
+
+    boolean isStatusChange() {
+        return status != ResponderLocationStatus.MOVING;
+    }
+
+    double getLat() {
+        return lat;
+    }
+
+    double getLon() {
+        return lon;
+    }
+
+    boolean isHuman() {
+        return human;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationUpdate{responderId=" + responderId + ", missionId=" + missionId + ", incidentId=" + incidentId
+                + ", status=" + status + ", lat=" + lat + ", lon=" + lon + ", human=" + human + "}";
+    }
+}
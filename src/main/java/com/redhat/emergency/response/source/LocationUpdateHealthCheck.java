@@ -0,0 +1,33 @@
+package com.redhat.emergency.response.source;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Liveness;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Reports the responder location updates as down once their processing failed for good. Later updates are not
+ * acknowledged anymore, restarting the service has them redelivered from the last acknowledged offset.
+ */
+@Liveness
+@Readiness
+@ApplicationScoped
+public class LocationUpdateHealthCheck implements HealthCheck {
+
+    @Inject
+    ResponderUpdateLocationSource source;
+
+    @Override
+    public HealthCheckResponse call() {
+        Throwable failure = source.failure();
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("responder-location-update");
+        if (failure == null) {
+            return response.up().build();
+        }
+        return response.down().withData("failure", String.valueOf(failure.getMessage())).build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.redhat.emergency.response.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.smallrye.mutiny.Uni;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups items in batches of at most {@code size} items, or of the items received within {@code window} ms of the first
+ * item of the batch, and processes the batches one after the other, in order.
+ * <p>
+ * {@link #add} returns immediately unless more than {@value #MAX_PENDING_BATCHES} batches are waiting to be processed,
+ * in which case it completes once the pending batches are processed.
+ * <p>
+ * The processor acknowledges the items of a batch. Once a batch fails, the batches after it are not processed, so that
+ * their acknowledgements do not commit past the failed items, and {@link #add} fails.
+ */
+final class MessageBatcher<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageBatcher.class);
+
+    static final int MAX_PENDING_BATCHES = 4;
+
+    private final int size;
+
+    private final long window;
+
+    private final Function<List<T>, Uni<Void>> processor;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "message-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<T> batch = new ArrayList<>();
+
+    private ScheduledFuture<?> timer;
+
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    private int pending;
+
+    private volatile Throwable failure;
+
+    MessageBatcher(int size, long window, Function<List<T>, Uni<Void>> processor) {
+        this.size = size;
+        this.window = window;
+        this.processor = processor;
+    }
+
+    synchronized Uni<Void> add(T item) {
+        if (failure != null) {
+            return Uni.createFrom().failure(failure);
+        }
+        batch.add(item);
+        if (batch.size() >= size) {
+            flush();
+        } else if (timer == null) {
+            timer = scheduler.schedule(this::flushOnTimer, window, TimeUnit.MILLISECONDS);
+        }
+        if (pending > MAX_PENDING_BATCHES) {
+            CompletableFuture<Void> current = tail;
+            return Uni.createFrom().completionStage(current);
+        }
+        return Uni.createFrom().nullItem();
+    }
+
+    /**
+     * Processes the current batch and stops the timer.
+     *
+     * @return completes once all the batches are processed
+     */
+    synchronized CompletableFuture<Void> close() {
+        if (!batch.isEmpty()) {
+            flush();
+        }
+        scheduler.shutdown();
+        return tail;
+    }
+
+    private synchronized void flushOnTimer() {
+        timer = null;
+        if (!batch.isEmpty()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        List<T> items = batch;
+        batch = new ArrayList<>(Math.min(size, 1024));
+        pending++;
+        tail = tail.thenCompose(v -> Uni.createFrom().deferred(() -> failure == null ? processor.apply(items)
+                : Uni.createFrom().<Void>nullItem()).subscribeAsCompletionStage()
+                .handle((result, t) -> {
+                    if (t != null && failure == null) {
+                        log.error("Exception processing a batch of " + items.size() + " messages, later batches are not processed", t);
+                        failure = t;
+                    }
+                    synchronized (this) {
+                        pending--;
+                    }
+                    return null;
+                }));
+    }
+}
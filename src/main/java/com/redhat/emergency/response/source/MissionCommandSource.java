@@ -1,18 +1,30 @@
 package com.redhat.emergency.response.source;
 
-import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.redhat.emergency.response.map.RoutePlanner;
 import com.redhat.emergency.response.model.Mission;
 import com.redhat.emergency.response.model.MissionStatus;
+import com.redhat.emergency.response.model.MissionStep;
 import com.redhat.emergency.response.repository.MissionRepository;
 import com.redhat.emergency.response.sink.EventSink;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
@@ -25,7 +37,7 @@ public class MissionCommandSource {
     private static final Logger log = LoggerFactory.getLogger(MissionCommandSource.class);
 
     static final String CREATE_MISSION_COMMAND = "CreateMissionCommand";
-    static final String[] ACCEPTED_MESSAGE_TYPES = {CREATE_MISSION_COMMAND};
+    static final Set<String> ACCEPTED_MESSAGE_TYPES = Set.of(CREATE_MISSION_COMMAND);
 
     @Inject
     RoutePlanner routePlanner;
@@ -36,28 +48,108 @@ public class MissionCommandSource {
     @Inject
     EventSink eventSink;
 
+    @Inject
+    CommandDeduplicator deduplicator;
+
+    /**
+     * Commands are processed on {@code lanes} threads, the commands of a mission always on the same lane. A lane holds
+     * at most {@code lane.queue-size} commands before the next command waits. A single lane processes every command on
+     * its own, in order.
+     */
+    @ConfigProperty(name = "mission.processing.lanes", defaultValue = "1")
+    int lanes;
+
+    @ConfigProperty(name = "mission.processing.lane.queue-size", defaultValue = "100")
+    int laneQueueSize;
+
+    private KeyOrderedExecutor executor;
+
+    void onStart(@Observes StartupEvent e) {
+        if (lanes > 1) {
+            log.info("Processing mission commands on " + lanes + " lanes");
+            executor = new KeyOrderedExecutor("mission-command", lanes, laneQueueSize);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent e) {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
     @Incoming("mission-command")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     public Uni<CompletionStage<Void>> process(Message<String> missionCommandMessage) {
 
+        if (executor != null) {
+            MissionCommand command = toCommand(missionCommandMessage.getPayload()).orElse(null);
+            return executor.submit(command == null ? null : command.mission.getKey(),
+                    () -> processCommand(command).onFailure().recoverWithItem((Mission) null), missionCommandMessage::ack)
+                    .onItem().apply(v -> CompletableFuture.<Void>completedFuture(null));
+        }
         return Uni.createFrom().item(missionCommandMessage)
-                .onItem().apply(mcm -> accept(missionCommandMessage.getPayload()))
-                .onItem().apply(o -> o.flatMap(j -> validate(j.getJsonObject("body"))).orElseThrow(() -> new IllegalStateException("Message ignored")))
-                .onItem().apply(m -> m.status(MissionStatus.CREATED))
-                .onItem().apply(this::addRoute)
-                .onItem().apply(this::addToRepository)
-                .onItem().produceUni(this::publishMissionStartedEventAsync)
+                .onItem().apply(mcm -> toCommand(missionCommandMessage.getPayload()).orElseThrow(() -> new IllegalStateException("Message ignored")))
+                .onItem().produceUni(this::processCommand)
                 .onItem().apply(m -> missionCommandMessage.ack())
                 .onFailure().recoverWithItem(t -> missionCommandMessage.ack());
     }
 
-    private Mission addRoute(Mission mission) {
-        mission.getSteps().addAll(routePlanner.getDirections(mission.responderLocation(), mission.destinationLocation(), mission.incidentLocation()));
+    private Optional<MissionCommand> toCommand(String payload) {
+        return accept(payload).filter(c -> validate(c.mission).isPresent()).map(c -> {
+            c.mission.status(MissionStatus.CREATED);
+            return c;
+        });
+    }
+
+    /**
+     * Commands already processed are skipped before the route is computed. The command is only marked as done once the
+     * mission is stored and started; its claim is released if the mission cannot be created, so that a redelivery of
+     * the command is processed.
+     */
+    private Uni<Mission> processCommand(MissionCommand command) {
+        return deduplicator.claim(command.id).onItem().produceUni(first -> {
+            if (!first) {
+                return Uni.createFrom().<Mission>nullItem();
+            }
+            return createMission(command.mission)
+                    .onItem().produceUni(m -> deduplicator.done(command.id).onItem().apply(v -> m))
+                    .onFailure().invoke(t -> deduplicator.release(command.id));
+        });
+    }
+
+    /**
+     * When the route planner is asynchronous, the mission is stored and started without steps; the route is added once
+     * it is computed and announced with a {@code MissionRouteReadyEvent}.
+     */
+    private Uni<Mission> createMission(Mission mission) {
+        if (routePlanner.isAsync()) {
+            return repository.addAsync(mission)
+                    .onItem().produceUni(this::publishMissionStartedEventAsync)
+                    .onItem().invoke(this::addRouteAsync);
+        }
+        return Uni.createFrom().item(mission)
+                .onItem().apply(this::addRoute)
+                .onItem().produceUni(repository::addAsync)
+                .onItem().produceUni(this::publishMissionStartedEventAsync);
+    }
+
+    private void addRouteAsync(Mission mission) {
+        String key = mission.getKey();
+        routePlanner.getDirectionsAsync(mission.responderLocation(), mission.destinationLocation(), mission.incidentLocation())
+                .onItem().produceUni(steps -> steps.isEmpty() ? Uni.createFrom().<Mission>nullItem() : repository.updateAsync(key, m -> withSteps(m, steps)))
+                .onItem().ifNotNull().produceUni(m -> eventSink.missionRouteReady(m))
+                .subscribe().with(v -> {}, t -> log.error("Exception adding the route of mission with key = " + key, t));
+    }
+
+    private Mission withSteps(Mission mission, List<MissionStep> steps) {
+        if (mission.getSteps().isEmpty()) {
+            mission.getSteps().addAll(steps);
+        }
         return mission;
     }
 
-    private Mission addToRepository(Mission mission) {
-        repository.add(mission);
+    private Mission addRoute(Mission mission) {
+        mission.getSteps().addAll(routePlanner.getDirections(mission.responderLocation(), mission.destinationLocation(), mission.incidentLocation()));
         return mission;
     }
 
@@ -65,15 +157,49 @@ public class MissionCommandSource {
         return eventSink.missionStarted(mission).map(v -> mission);
     }
 
-    private Optional<JsonObject> accept(String messageAsJson) {
-        try {
-            JsonObject json = new JsonObject(messageAsJson);
-            String messageType = json.getString("messageType");
-            if (Arrays.asList(ACCEPTED_MESSAGE_TYPES).contains(messageType) && json.containsKey("body")) {
-                log.debug("Processing message: " + json.toString());
-                return Optional.of(json);
+    /**
+     * Reads the message in a single pass, without building a JSON tree: messages of other types are dropped as soon as
+     * their {@code messageType} is read, and the {@code body} is bound straight to a {@link Mission}. The body is only
+     * buffered if it comes before the message type.
+     */
+    private Optional<MissionCommand> accept(String messageAsJson) {
+        String id = null;
+        String messageType = null;
+        TreeNode body = null;
+        Mission mission = null;
+        try (JsonParser parser = DatabindCodec.mapper().getFactory().createParser(messageAsJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Message is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field)) {
+                    id = parser.getValueAsString();
+                } else if ("messageType".equals(field)) {
+                    messageType = parser.getValueAsString();
+                    if (!ACCEPTED_MESSAGE_TYPES.contains(messageType)) {
+                        break;
+                    }
+                    if (body != null) {
+                        mission = parser.getCodec().treeToValue(body, Mission.class);
+                    }
+                } else if ("body".equals(field) && value == JsonToken.START_OBJECT) {
+                    if (messageType != null) {
+                        mission = parser.readValueAs(Mission.class);
+                    } else {
+                        body = parser.readValueAsTree();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (mission != null) {
+                return Optional.of(new MissionCommand(id, mission));
             }
             log.debug("Message with type '" + messageType + "' is ignored");
+        } catch (JsonMappingException e) {
+            log.error("Exception when deserializing message body into Mission object:", e);
         } catch (Exception e) {
             log.warn("Unexpected message which is not JSON or without 'messageType' field.");
             log.warn("Message: " + messageAsJson);
@@ -81,22 +207,31 @@ public class MissionCommandSource {
         return Optional.empty();
     }
 
-    private Optional<Mission> validate(JsonObject json) {
-        try {
-            Optional<Mission> mission = Optional.of(json.mapTo(Mission.class))
-                    .filter(m -> m.getIncidentId() != null && !(m.getIncidentId().isBlank()))
-                    .filter(m -> m.getResponderId() != null && !(m.getResponderId().isBlank()))
-                    .filter(m -> m.getIncidentLat() != null && m.getIncidentLong() != null)
-                    .filter(m -> m.getResponderStartLat() != null && m.getResponderStartLong() != null)
-                    .filter(m -> m.getDestinationLat() != null && m.getDestinationLong() != null);
-            if (mission.isEmpty()) {
-                log.warn("Missing data in Mission object. Ignoring.");
-            }
-            return mission;
-        } catch (Exception e) {
-            log.error("Exception when deserializing message body into Mission object:", e);
+    private Optional<Mission> validate(Mission mission) {
+        if (log.isDebugEnabled()) {
+            log.debug("Processing mission: " + mission.toJson());
         }
-        return Optional.empty();
+        Optional<Mission> valid = Optional.of(mission)
+                .filter(m -> m.getIncidentId() != null && !(m.getIncidentId().isBlank()))
+                .filter(m -> m.getResponderId() != null && !(m.getResponderId().isBlank()))
+                .filter(m -> !Double.isNaN(m.getIncidentLat()) && !Double.isNaN(m.getIncidentLong()))
+                .filter(m -> !Double.isNaN(m.getResponderStartLat()) && !Double.isNaN(m.getResponderStartLong()))
+                .filter(m -> !Double.isNaN(m.getDestinationLat()) && !Double.isNaN(m.getDestinationLong()));
+        if (valid.isEmpty()) {
+            log.warn("Missing data in Mission object. Ignoring.");
+        }
+        return valid;
     }
 
+    private static final class MissionCommand {
+
+        private final String id;
+
+        private final Mission mission;
+
+        private MissionCommand(String id, Mission mission) {
+            this.id = id;
+            this.mission = mission;
+        }
+    }
 }
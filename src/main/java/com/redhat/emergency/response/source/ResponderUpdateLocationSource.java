@@ -1,20 +1,28 @@
 package com.redhat.emergency.response.source;
 
-import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Mission;
 import com.redhat.emergency.response.model.MissionStatus;
 import com.redhat.emergency.response.model.ResponderLocationHistory;
 import com.redhat.emergency.response.model.ResponderLocationStatus;
+import com.redhat.emergency.response.repository.LocationHistoryPolicy;
 import com.redhat.emergency.response.repository.MissionRepository;
 import com.redhat.emergency.response.sink.EventSink;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
@@ -30,42 +38,202 @@ public class ResponderUpdateLocationSource {
     @Inject
     EventSink eventSink;
 
+    @Inject
+    LocationHistoryPolicy historyPolicy;
+
+    /**
+     * Location updates are processed in batches of up to {@code batch.size} messages received within
+     * {@code batch.window} ms. The updates of a batch are grouped by mission, and consecutive locations of a mission
+     * are appended to its history in one write. Messages are acknowledged once their batch is processed.
+     * A size of 1 processes every message on its own.
+     */
+    @ConfigProperty(name = "mission.location-update.batch.size", defaultValue = "1")
+    int batchSize;
+
+    @ConfigProperty(name = "mission.location-update.batch.window", defaultValue = "100")
+    long batchWindow;
+
+    /**
+     * Without batches, location updates are processed on {@code lanes} threads, the updates of a mission always on the
+     * same lane and in order. A lane holds at most {@code lane.queue-size} updates before the next update waits.
+     */
+    @ConfigProperty(name = "mission.processing.lanes", defaultValue = "1")
+    int lanes;
+
+    @ConfigProperty(name = "mission.processing.lane.queue-size", defaultValue = "100")
+    int laneQueueSize;
+
+    /**
+     * With the write-behind buffer, the locations of moving responders received within {@code write-behind.window} ms
+     * are written together. Messages are only acknowledged once their location is written. A failed write is retried
+     * up to {@code write-behind.attempts} times; once it fails for good, no later message is acknowledged, the next
+     * message fails the channel and the {@link LocationUpdateHealthCheck} reports the failure.
+     */
+    @ConfigProperty(name = "mission.location-history.write-behind.enabled", defaultValue = "false")
+    boolean writeBehindEnabled;
+
+    @ConfigProperty(name = "mission.location-history.write-behind.window", defaultValue = "500")
+    long writeBehindWindow;
+
+    @ConfigProperty(name = "mission.location-history.write-behind.attempts", defaultValue = "3")
+    int writeBehindAttempts;
+
+    private MessageBatcher<Message<String>> batcher;
+
+    private LocationHistoryWriteBehind writeBehind;
+
+    /**
+     * @return the failure that stopped the location updates from being acknowledged, or null
+     */
+    Throwable failure() {
+        return writeBehind == null ? null : writeBehind.failure();
+    }
+
+    private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+
+    private KeyOrderedExecutor executor;
+
     private static final Logger log = LoggerFactory.getLogger(ResponderUpdateLocationSource.class);
 
+    void onStart(@Observes StartupEvent e) {
+        if (writeBehindEnabled) {
+            log.info("Writing responder locations behind, every " + writeBehindWindow + " ms");
+            writeBehind = new LocationHistoryWriteBehind(writeBehindWindow, writeBehindAttempts, repository::appendLocationsAsync);
+        }
+        if (batchSize > 1) {
+            log.info("Processing responder location updates in batches of " + batchSize + " messages within " + batchWindow + " ms");
+            batcher = new MessageBatcher<>(batchSize, batchWindow, this::processBatch);
+        } else if (lanes > 1) {
+            log.info("Processing responder location updates on " + lanes + " lanes");
+            executor = new KeyOrderedExecutor("responder-location-update", lanes, laneQueueSize);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent e) {
+        if (batcher != null) {
+            batcher.close().join();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (writeBehind != null) {
+            writeBehind.close().exceptionally(t -> null).join();
+        }
+    }
+
     @Incoming("responder-location-update")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     public Uni<CompletionStage<Void>> process(Message<String> responderLocationUpdate) {
 
+        if (batcher != null) {
+            return batcher.add(responderLocationUpdate).onItem().apply(v -> CompletableFuture.<Void>completedFuture(null));
+        }
+        if (executor != null) {
+            LocationUpdate locationUpdate = getLocationUpdate(responderLocationUpdate.getPayload());
+            return executor.submit(locationUpdate == null ? null : locationUpdate.key(),
+                    () -> processLocationUpdate(locationUpdate), () -> ack(responderLocationUpdate))
+                    .onItem().apply(v -> CompletableFuture.<Void>completedFuture(null));
+        }
         return Uni.createFrom().item(responderLocationUpdate).onItem()
                 .apply(m -> getLocationUpdate(responderLocationUpdate.getPayload()))
                 .onItem().ifNotNull().produceUni(this::processLocationUpdate)
-                .onItem().apply(v -> responderLocationUpdate.ack());
+                .onItem().apply(v -> ack(responderLocationUpdate));
     }
 
-    private Uni<Void> processLocationUpdate(JsonObject locationUpdate) {
-        Optional<Mission> mission = repository.get(getKey(locationUpdate));
-        if (mission.isPresent()) {
-            ResponderLocationHistory rlh = new ResponderLocationHistory(BigDecimal.valueOf(locationUpdate.getDouble("lat")),
-                    BigDecimal.valueOf(locationUpdate.getDouble("lon")), Instant.now().toEpochMilli());
-            mission.get().getResponderLocationHistory().add(rlh);
-            return emitMissionEvent(locationUpdate.getString("status"), mission.get())
-                    .onItem().produceUni(m -> emitUpdateResponderCommand(m, locationUpdate))
-                    .onItem().produceUni(m -> {
-                        repository.add(m);
-                        return Uni.createFrom().nullItem();
-                    });
-        } else {
-            log.warn("Mission with key = " + getKey(locationUpdate) + " not found in the repository.");
-            return Uni.createFrom().item(null);
+    /**
+     * With the write-behind buffer, the message is only acknowledged once the locations buffered so far are written.
+     * Messages are acknowledged in order, and none after a failed write.
+     */
+    private synchronized CompletionStage<Void> ack(Message<String> message) {
+        if (writeBehind == null) {
+            return message.ack();
+        }
+        CompletionStage<Void> flushed = writeBehind.flushed();
+        acknowledged = acknowledged.thenCompose(v -> flushed).thenCompose(v -> message.ack());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private Uni<Void> processBatch(List<Message<String>> messages) {
+        Map<String, List<LocationUpdate>> locationUpdates = new LinkedHashMap<>();
+        for (Message<String> message : messages) {
+            LocationUpdate locationUpdate = getLocationUpdate(message.getPayload());
+            if (locationUpdate != null) {
+                locationUpdates.computeIfAbsent(locationUpdate.key(), k -> new ArrayList<>()).add(locationUpdate);
+            }
+        }
+        List<Uni<Void>> missions = locationUpdates.entrySet().stream()
+                .map(e -> processLocationUpdates(e.getKey(), e.getValue())).collect(Collectors.toList());
+        Uni<Void> processed = missions.isEmpty() ? Uni.createFrom().nullItem()
+                : Uni.combine().all().unis(missions).combinedWith(results -> null);
+        return processed.onItem().produceUni(v -> Uni.combine().all().unis(messages.stream()
+                .map(m -> Uni.createFrom().completionStage(ack(m))).collect(Collectors.toList())).combinedWith(results -> null));
+    }
+
+    /**
+     * Processes the location updates of one mission in order. Consecutive moves are appended to the history together.
+     */
+    private Uni<Void> processLocationUpdates(String key, List<LocationUpdate> locationUpdates) {
+        Uni<Void> processed = Uni.createFrom().nullItem();
+        List<ResponderLocationHistory> moves = new ArrayList<>();
+        for (LocationUpdate locationUpdate : locationUpdates) {
+            if (!locationUpdate.isStatusChange()) {
+                moves.add(new ResponderLocationHistory(locationUpdate.getLat(), locationUpdate.getLon(),
+                        Instant.now().toEpochMilli()));
+                continue;
+            }
+            List<ResponderLocationHistory> locations = new ArrayList<>(moves);
+            moves.clear();
+            processed = processed.onItem().produceUni(v -> appendLocations(key, locations))
+                    .onItem().produceUni(v -> processLocationUpdate(locationUpdate));
+        }
+        return processed.onItem().produceUni(v -> appendLocations(key, moves));
+    }
+
+    private Uni<Void> appendLocations(String key, List<ResponderLocationHistory> locations) {
+        if (locations.isEmpty()) {
+            return Uni.createFrom().nullItem();
+        }
+        if (writeBehind != null) {
+            return writeBehind.append(key, locations);
+        }
+        return repository.appendLocationsAsync(key, locations, false);
+    }
+
+    private Uni<Void> processLocationUpdate(LocationUpdate locationUpdate) {
+        String key = locationUpdate.key();
+        ResponderLocationStatus status = locationUpdate.getStatus();
+        ResponderLocationHistory rlh = new ResponderLocationHistory(locationUpdate.getLat(),
+                locationUpdate.getLon(), Instant.now().toEpochMilli());
+        if (!locationUpdate.isStatusChange()) {
+            // the mission entry itself does not change, only the location history grows
+            if (writeBehind != null) {
+                return writeBehind.append(key, List.of(rlh));
+            }
+            // locations of missions that are not active are ignored by the repository, without a read of the mission
+            return repository.appendLocationAsync(key, rlh, false);
         }
+        MissionStatus missionStatus = status == ResponderLocationStatus.PICKEDUP ? MissionStatus.UPDATED : MissionStatus.COMPLETED;
+        // locations written behind are part of the history the status change sees
+        Uni<Void> flushed = writeBehind == null ? Uni.createFrom().nullItem() : writeBehind.flush(key);
+        return flushed.onItem().produceUni(f -> repository.updateAsync(key, m -> {
+            historyPolicy.append(m.getResponderLocationHistory(), rlh, true);
+            return m.status(missionStatus);
+        }).onItem().produceUni(mission -> {
+            if (mission == null) {
+                log.warn("Mission with key = " + key + " not found in the repository.");
+                return Uni.createFrom().<Void>nullItem();
+            }
+            Uni<Void> history = mission.isActive() ? repository.appendLocationAsync(key, rlh, true) : Uni.createFrom().nullItem();
+            return history.onItem().produceUni(v -> emitMissionEvent(status, mission))
+                    .onItem().produceUni(m -> emitUpdateResponderCommand(m, locationUpdate))
+                    .onItem().apply(m -> null);
+        }));
     }
 
-    private Uni<Mission> emitMissionEvent(String status, Mission mission) {
-        if (ResponderLocationStatus.PICKEDUP.name().equals(status)) {
-            mission.status(MissionStatus.UPDATED);
+    private Uni<Mission> emitMissionEvent(ResponderLocationStatus status, Mission mission) {
+        if (status == ResponderLocationStatus.PICKEDUP) {
             return eventSink.missionPickedUp(mission).map(v -> mission);
-        } else if (ResponderLocationStatus.DROPPED.name().equals(status)) {
-            mission.status(MissionStatus.COMPLETED);
+        } else if (status == ResponderLocationStatus.DROPPED) {
             return eventSink.missionCompleted(mission).map(v -> mission);
         } else {
             //do nothing
@@ -73,38 +241,31 @@ public class ResponderUpdateLocationSource {
         }
     }
 
-    private Uni<Mission> emitUpdateResponderCommand(Mission mission, JsonObject locationUpdate) {
-        if (ResponderLocationStatus.DROPPED.name().equals(locationUpdate.getString("status"))) {
-            return eventSink.responderCommand(mission, BigDecimal.valueOf(locationUpdate.getDouble("lat")),
-                    BigDecimal.valueOf(locationUpdate.getDouble("lon")), locationUpdate.getBoolean("human"))
+    private Uni<Mission> emitUpdateResponderCommand(Mission mission, LocationUpdate locationUpdate) {
+        if (locationUpdate.getStatus() == ResponderLocationStatus.DROPPED) {
+            return eventSink.responderCommand(mission, locationUpdate.getLat(),
+                    locationUpdate.getLon(), locationUpdate.isHuman())
                     .map(v -> mission);
         } else {
             return Uni.createFrom().item(mission);
         }
     }
 
-    private JsonObject getLocationUpdate(String payload) {
+    private LocationUpdate getLocationUpdate(String payload) {
         try {
-            JsonObject json = new JsonObject(payload);
-            if (json.getString("responderId") == null || json.getString("responderId").isBlank()
-                    || json.getString("missionId") == null || json.getString("missionId").isBlank()
-                    || json.getString("incidentId") == null || json.getString("incidentId").isBlank()
-                    || json.getString("status") == null || json.getString("status").isBlank()
-                    || json.getDouble("lat") == null || json.getDouble("lon") == null
-                    || json.getBoolean("human") == null || json.getBoolean("continue") == null) {
+            LocationUpdate locationUpdate = LocationUpdate.decode(payload);
+            if (locationUpdate == null) {
                 log.warn("Unexpected message structure. Message is ignored");
                 return null;
             }
-            log.debug("Processing message: " + json.toString());
-            return json;
+            if (log.isDebugEnabled()) {
+                log.debug("Processing message: " + payload);
+            }
+            return locationUpdate;
         } catch (Exception e) {
             log.warn("Unexpected message structure. Message is ignored");
             return null;
         }
     }
 
-    private String getKey(JsonObject json) {
-        return json.getString("incidentId") + ":" + json.getString("responderId");
-    }
-
 }
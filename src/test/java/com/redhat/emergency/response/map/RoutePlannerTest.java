@@ -0,0 +1,167 @@
+package com.redhat.emergency.response.map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.emergency.response.model.Location;
+import com.redhat.emergency.response.model.MissionStep;
+import org.infinispan.client.hotrod.MetadataValue;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoutePlannerTest {
+
+    private static final String OSM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<osm version=\"0.6\">"
+            + "<node id=\"1\" lat=\"34.2000\" lon=\"-77.9000\"/>"
+            + "<node id=\"2\" lat=\"34.2000\" lon=\"-77.8990\"/>"
+            + "<node id=\"3\" lat=\"34.2000\" lon=\"-77.8980\"/>"
+            + "<node id=\"4\" lat=\"34.2010\" lon=\"-77.8980\"/>"
+            + "<node id=\"5\" lat=\"34.2010\" lon=\"-77.9000\"/>"
+            + "<way id=\"10\"><nd ref=\"1\"/><nd ref=\"2\"/><nd ref=\"3\"/><tag k=\"highway\" v=\"residential\"/></way>"
+            + "<way id=\"11\"><nd ref=\"3\"/><nd ref=\"4\"/><tag k=\"highway\" v=\"primary\"/><tag k=\"oneway\" v=\"yes\"/></way>"
+            + "<way id=\"12\"><nd ref=\"1\"/><nd ref=\"5\"/><tag k=\"highway\" v=\"footway\"/></way>"
+            + "</osm>";
+
+    private RoadGraph graph;
+
+    private RoutePlanner routePlanner;
+
+    @BeforeEach
+    void init() throws IOException {
+        graph = RoadGraph.fromOsm(new ByteArrayInputStream(OSM.getBytes(StandardCharsets.UTF_8)));
+        routePlanner = new RoutePlanner();
+        routePlanner.snapCells = 5;
+        routePlanner.routeCache = new RouteCache();
+        routePlanner.graph(graph);
+    }
+
+    @Test
+    void testReadDrivableWays() {
+
+        assertThat(graph.nodeCount(), equalTo(4));
+        assertThat(graph.edgeCount(), equalTo(5));
+    }
+
+    @Test
+    void testOneWay() {
+
+        int from = graph.nearest(34.2000, -77.9000, 1);
+        int to = graph.nearest(34.2010, -77.8980, 1);
+
+        assertThat(graph.route(from, to).length, equalTo(4));
+        assertThat(graph.route(to, from), nullValue());
+        // the search state of the previous routes is reused
+        assertThat(graph.route(from, to), equalTo(new int[]{from, graph.nearest(34.2000, -77.8990, 1), graph.nearest(34.2000, -77.8980, 1), to}));
+    }
+
+    @Test
+    void testGetDirections() {
+
+        List<MissionStep> steps = routePlanner.getDirections(Location.of(34.2000, -77.9001),
+                Location.of(34.2011, -77.8980), Location.of(34.2000, -77.8981));
+
+        assertThat(steps.size(), equalTo(7));
+        assertThat(steps.get(0), equalTo(MissionStep.builder(34.2000, -77.9000).build()));
+        assertThat(steps.get(3), equalTo(MissionStep.builder(34.2000, -77.8981).wayPoint(true).build()));
+        assertThat(steps.get(5), equalTo(MissionStep.builder(34.2010, -77.8980).build()));
+        assertThat(steps.get(6), equalTo(MissionStep.builder(34.2011, -77.8980).destination(true).build()));
+    }
+
+    @Test
+    void testCachedLeg() {
+
+        RouteCache routeCache = new RouteCache();
+        routeCache.enabled = true;
+        routeCache.cellSize = 0.001;
+        routeCache.maxEntries = 10;
+        routeCache.ttl = 60000;
+        routeCache.onStart(null);
+        routePlanner.routeCache = routeCache;
+
+        List<MissionStep> first = routePlanner.getDirections(Location.of(34.2000, -77.9001),
+                Location.of(34.2011, -77.8980), Location.of(34.2000, -77.8981));
+        List<MissionStep> second = routePlanner.getDirections(Location.of(34.2000, -77.8991),
+                Location.of(34.2011, -77.8980), Location.of(34.2000, -77.8981));
+
+        assertThat(routeCache.misses(), equalTo(1L));
+        assertThat(routeCache.hits(), equalTo(1L));
+        assertThat(second.size(), equalTo(6));
+        assertThat(second.subList(2, 6), equalTo(first.subList(3, 7)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSharedLegExpiresWithGridEntry() {
+
+        RouteCache routeCache = new RouteCache();
+        routeCache.enabled = true;
+        routeCache.cellSize = 0.001;
+        routeCache.maxEntries = 10;
+        routeCache.ttl = 600000;
+        routeCache.onStart(null);
+        routeCache.routeCache = mock(RemoteCache.class);
+        // written to the grid two minutes ago with a lifespan of one minute, about to be expired by the grid
+        MetadataValue<String> value = mock(MetadataValue.class);
+        when(value.getValue()).thenReturn("[34.2,-77.898,34.201,-77.898]");
+        when(value.getCreated()).thenReturn(System.currentTimeMillis() - 120000);
+        when(value.getLifespan()).thenReturn(60);
+        when(routeCache.routeCache.getWithMetadataAsync("leg")).thenReturn(CompletableFuture.completedFuture(value));
+
+        assertThat(routeCache.getAsync("leg").join(), equalTo(new double[]{34.2, -77.898, 34.201, -77.898}));
+        routeCache.getAsync("leg").join();
+
+        verify(routeCache.routeCache, times(2)).getWithMetadataAsync("leg");
+        assertThat(routeCache.hits(), equalTo(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSharedLegNotReadByGetDirections() {
+
+        RouteCache routeCache = new RouteCache();
+        routeCache.enabled = true;
+        routeCache.cellSize = 0.001;
+        routeCache.maxEntries = 10;
+        routeCache.ttl = 60000;
+        routeCache.onStart(null);
+        routeCache.routeCache = mock(RemoteCache.class);
+        when(routeCache.routeCache.putAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        routePlanner.routeCache = routeCache;
+
+        List<MissionStep> steps = routePlanner.getDirections(Location.of(34.2000, -77.9001),
+                Location.of(34.2011, -77.8980), Location.of(34.2000, -77.8981));
+
+        assertThat(steps.size(), equalTo(7));
+        verify(routeCache.routeCache, never()).getWithMetadataAsync(anyString());
+        verify(routeCache.routeCache).putAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+        assertThat(routeCache.misses(), equalTo(1L));
+    }
+
+    @Test
+    void testNoGraph() {
+
+        RoutePlanner noGraph = new RoutePlanner();
+
+        assertThat(noGraph.getDirections(Location.of(34.2000, -77.9000), Location.of(34.2010, -77.8980),
+                Location.of(34.2000, -77.8980)).isEmpty(), equalTo(true));
+    }
+}
@@ -0,0 +1,74 @@
+package com.redhat.emergency.response.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+public class LocationHistoryTest {
+
+    @Test
+    void testRingBuffer() {
+
+        LocationHistory history = new LocationHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.add(30.0 + i, -70.0 - i, 1000L * i);
+        }
+
+        assertThat(history.size(), equalTo(3));
+        assertThat(history.get(0).getLat(), equalTo(32.0));
+        assertThat(history.get(2).getLat(), equalTo(34.0));
+        assertThat(history.get(2).getLon(), equalTo(-74.0));
+        assertThat(history.timestamp(2), equalTo(4000L));
+    }
+
+    @Test
+    void testReduceCapacity() {
+
+        LocationHistory history = new LocationHistory();
+        for (int i = 0; i < 20; i++) {
+            history.add(30.0 + i, -70.0, i);
+        }
+        history.capacity(5);
+        history.add(60.0, -70.0, 20);
+
+        assertThat(history.size(), equalTo(5));
+        assertThat(history.latitude(0), equalTo(46.0));
+        assertThat(history.latitude(4), equalTo(60.0));
+    }
+
+    @Test
+    void testSimplify() {
+
+        LocationHistory history = new LocationHistory();
+        // straight line going north, then a turn east
+        for (int i = 0; i <= 10; i++) {
+            history.add(30.0 + i * 0.001, -70.0, i);
+        }
+        for (int i = 1; i <= 10; i++) {
+            history.add(30.01, -70.0 + i * 0.001, 10 + i);
+        }
+
+        history.simplify(5);
+
+        assertThat(history.size(), equalTo(3));
+        assertThat(history.latitude(1), equalTo(30.01));
+        assertThat(history.longitude(1), equalTo(-70.0));
+        assertThat(history.timestamp(2), equalTo(20L));
+    }
+
+    @Test
+    void testJson() {
+
+        LocationHistory history = new LocationHistory();
+        history.add(30.78452, -70.85252, 1593872667576L);
+
+        String json = Json.encode(history);
+        LocationHistory decoded = Json.decodeValue(json, LocationHistory.class);
+
+        assertThat(json, equalTo("[{\"lat\":30.78452,\"lon\":-70.85252,\"timestamp\":1593872667576}]"));
+        assertThat(decoded.size(), equalTo(1));
+        assertThat(decoded.latitude(0), equalTo(30.78452));
+    }
+}
@@ -0,0 +1,57 @@
+package com.redhat.emergency.response.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+public class MissionStepPolylineTest {
+
+    @Test
+    void testEncode() {
+
+        List<MissionStep> steps = List.of(MissionStep.builder(38.5, -120.2).build(),
+                MissionStep.builder(40.7, -120.95).wayPoint(true).build(),
+                MissionStep.builder(43.252, -126.453).destination(true).build());
+
+        assertThat(MissionStepPolyline.encode(steps), equalTo("_izlhA~rlgdF_{geC~ywl@_kwzCn`{nI"));
+        assertThat(MissionStepPolyline.wayPointIndex(steps), equalTo(1));
+        assertThat(MissionStepPolyline.destinationIndex(steps), equalTo(2));
+    }
+
+    @Test
+    void testRoundTrip() {
+
+        List<MissionStep> steps = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            steps.add(MissionStep.builder(34.210512 + i * 0.000131, -77.886234 - i * 0.000097).wayPoint(i == 200)
+                    .destination(i == 499).build());
+        }
+
+        String polyline = MissionStepPolyline.encode(steps);
+        List<MissionStep> decoded = MissionStepPolyline.decode(polyline, 200, 499);
+
+        assertThat(decoded.size(), equalTo(500));
+        for (int i = 0; i < 500; i++) {
+            assertThat(Math.abs(decoded.get(i).getLat() - steps.get(i).getLat()), lessThan(1e-6));
+            assertThat(Math.abs(decoded.get(i).getLon() - steps.get(i).getLon()), lessThan(1e-6));
+            assertThat(decoded.get(i).isWayPoint(), equalTo(steps.get(i).isWayPoint()));
+            assertThat(decoded.get(i).isDestination(), equalTo(steps.get(i).isDestination()));
+        }
+        assertThat(polyline.length() * 10, lessThan(Json.encode(steps).length()));
+    }
+
+    @Test
+    void testNotEncodable() {
+
+        List<MissionStep> steps = List.of(MissionStep.builder(38.5, -120.2).wayPoint(true).build(),
+                MissionStep.builder(40.7, -120.95).wayPoint(true).build());
+
+        assertThat(MissionStepPolyline.isEncodable(steps), equalTo(false));
+    }
+}
@@ -3,10 +3,8 @@ package com.redhat.emergency.response.model;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
-import static org.hamcrest.Matchers.nullValue;
-
-import java.math.BigDecimal;
 
 import io.vertx.core.json.JsonObject;
 import org.junit.jupiter.api.Test;
@@ -30,12 +28,12 @@ public class MissionTest {
         assertThat(mission.getSteps().size(), equalTo(0));
         assertThat(mission.getIncidentId(), equalTo(jsonObject.getString("incidentId")));
         assertThat(mission.getResponderId(), equalTo(jsonObject.getString("responderId")));
-        assertThat(mission.getResponderStartLat(), equalTo(new BigDecimal(jsonObject.getString("responderStartLat"))));
-        assertThat(mission.getResponderStartLong(), equalTo(new BigDecimal(jsonObject.getString("responderStartLong"))));
-        assertThat(mission.getIncidentLat(), equalTo(new BigDecimal(jsonObject.getString("incidentLat"))));
-        assertThat(mission.getIncidentLong(), equalTo(new BigDecimal(jsonObject.getString("incidentLong"))));
-        assertThat(mission.getDestinationLat(), equalTo(new BigDecimal(jsonObject.getString("destinationLat"))));
-        assertThat(mission.getDestinationLong(), equalTo(new BigDecimal(jsonObject.getString("destinationLong"))));
+        assertThat(mission.getResponderStartLat(), equalTo(Double.parseDouble(jsonObject.getString("responderStartLat"))));
+        assertThat(mission.getResponderStartLong(), equalTo(Double.parseDouble(jsonObject.getString("responderStartLong"))));
+        assertThat(mission.getIncidentLat(), equalTo(Double.parseDouble(jsonObject.getString("incidentLat"))));
+        assertThat(mission.getIncidentLong(), equalTo(Double.parseDouble(jsonObject.getString("incidentLong"))));
+        assertThat(mission.getDestinationLat(), equalTo(Double.parseDouble(jsonObject.getString("destinationLat"))));
+        assertThat(mission.getDestinationLong(), equalTo(Double.parseDouble(jsonObject.getString("destinationLong"))));
     }
 
     @Test
@@ -54,12 +52,29 @@ public class MissionTest {
         assertThat(mission.getSteps().size(), equalTo(0));
         assertThat(mission.getIncidentId(), equalTo(jsonObject.getString("incidentId")));
         assertThat(mission.getResponderId(), equalTo(jsonObject.getString("responderId")));
-        assertThat(mission.getResponderStartLat(), nullValue());
-        assertThat(mission.getResponderStartLong(), nullValue());
-        assertThat(mission.getIncidentLat(), equalTo(new BigDecimal(jsonObject.getString("incidentLat"))));
-        assertThat(mission.getIncidentLong(), equalTo(new BigDecimal(jsonObject.getString("incidentLong"))));
-        assertThat(mission.getDestinationLat(), equalTo(new BigDecimal(jsonObject.getString("destinationLat"))));
-        assertThat(mission.getDestinationLong(), equalTo(new BigDecimal(jsonObject.getString("destinationLong"))));
+        assertThat(Double.isNaN(mission.getResponderStartLat()), is(true));
+        assertThat(Double.isNaN(mission.getResponderStartLong()), is(true));
+        assertThat(mission.getIncidentLat(), equalTo(Double.parseDouble(jsonObject.getString("incidentLat"))));
+        assertThat(mission.getIncidentLong(), equalTo(Double.parseDouble(jsonObject.getString("incidentLong"))));
+        assertThat(mission.getDestinationLat(), equalTo(Double.parseDouble(jsonObject.getString("destinationLat"))));
+        assertThat(mission.getDestinationLong(), equalTo(Double.parseDouble(jsonObject.getString("destinationLong"))));
     }
 
+    @Test
+    void testMapFromJsonObjectNullCoordinates() {
+
+        JsonObject jsonObject = new JsonObject().put("incidentId", "incident1").put("responderId", "15")
+                .putNull("responderStartLat").putNull("responderStartLong")
+                .put("incidentLat", 31.98765).putNull("incidentLong")
+                .putNull("destinationLat").put("destinationLong", "-72.15975");
+
+        Mission mission = jsonObject.mapTo(Mission.class);
+
+        assertThat(Double.isNaN(mission.getResponderStartLat()), is(true));
+        assertThat(Double.isNaN(mission.getResponderStartLong()), is(true));
+        assertThat(mission.getIncidentLat(), equalTo(31.98765));
+        assertThat(Double.isNaN(mission.getIncidentLong()), is(true));
+        assertThat(Double.isNaN(mission.getDestinationLat()), is(true));
+        assertThat(mission.getDestinationLong(), equalTo(-72.15975));
+    }
 }
@@ -0,0 +1,70 @@
+package com.redhat.emergency.response.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ConfigurationTest {
+
+    @Test
+    void testDefaults() {
+
+        Configuration configuration = Configuration.builder().name("mission").build();
+
+        assertThat(configuration.toXMLString("mission"), equalTo("<infinispan><cache-container>"
+                + "<distributed-cache name=\"mission\" mode=\"SYNC\" owners=\"2\"></distributed-cache>"
+                + "</cache-container></infinispan>"));
+    }
+
+    @Test
+    void testFullDefinition() {
+
+        Configuration configuration = Configuration.builder().name("mission").mode("async").owners(1).segments(64)
+                .l1Lifespan(60000L).storage("off_heap").maxCount(10000L).lifespan(3600000L).maxIdle(600000L)
+                .expirationInterval(30000L).indexing("local").indexedEntities(List.of("com.redhat.emergency.response.Mission"))
+                .build();
+
+        assertThat(configuration.toXMLString("mission"), equalTo("<infinispan><cache-container>"
+                + "<distributed-cache name=\"mission\" mode=\"ASYNC\" owners=\"1\" segments=\"64\" l1-lifespan=\"60000\">"
+                + "<memory><off-heap size=\"10000\" eviction=\"COUNT\" strategy=\"REMOVE\"/></memory>"
+                + "<expiration lifespan=\"3600000\" max-idle=\"600000\" interval=\"30000\"/>"
+                + "<indexing index=\"LOCAL\"><indexed-entities><indexed-entity>com.redhat.emergency.response.Mission</indexed-entity>"
+                + "</indexed-entities></indexing>"
+                + "</distributed-cache></cache-container></infinispan>"));
+    }
+
+    @Test
+    void testMaxSize() {
+
+        Configuration configuration = Configuration.builder().name("route").storage("BINARY").maxSize(1048576L).build();
+
+        assertThat(configuration.toXMLString("route"), equalTo("<infinispan><cache-container>"
+                + "<distributed-cache name=\"route\" mode=\"SYNC\" owners=\"2\">"
+                + "<memory><binary size=\"1048576\" eviction=\"MEMORY\" strategy=\"REMOVE\"/></memory>"
+                + "</distributed-cache></cache-container></infinispan>"));
+    }
+
+    @Test
+    void testObjectMaxCount() {
+
+        Configuration configuration = Configuration.builder().name("route").maxCount(1000L).build();
+
+        assertThat(configuration.toXMLString("route"), equalTo("<infinispan><cache-container>"
+                + "<distributed-cache name=\"route\" mode=\"SYNC\" owners=\"2\">"
+                + "<memory><object size=\"1000\" strategy=\"REMOVE\"/></memory>"
+                + "</distributed-cache></cache-container></infinispan>"));
+    }
+
+    @Test
+    void testInvalidDefinition() {
+
+        assertThrows(IllegalArgumentException.class, () -> Configuration.builder().name("mission").mode("QUORUM").build());
+        assertThrows(IllegalArgumentException.class, () -> Configuration.builder().name("mission").maxSize(1024L).build());
+        assertThrows(IllegalArgumentException.class, () -> Configuration.builder().name("mission").storage("BINARY")
+                .maxCount(10L).maxSize(1024L).build());
+    }
+}
@@ -0,0 +1,171 @@
+package com.redhat.emergency.response.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.impl.MetadataValueImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LocationHistoryRepositoryTest {
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Runs once before the next versioned replace, to interleave another writer.
+     */
+    private Runnable beforeReplace;
+
+    private RemoteCache<String, Object> historyCache;
+
+    @BeforeEach
+    void init() {
+        historyCache = historyCache();
+    }
+
+    @Test
+    void testAppend() {
+
+        LocationHistoryRepository repository = repository(3);
+        repository.createAsync("mission1").await().indefinitely();
+
+        for (long timestamp = 1; timestamp <= 4; timestamp++) {
+            repository.append("mission1", new ResponderLocationHistory(30.0, -70.0, timestamp), false);
+        }
+
+        assertThat(timestamps(repository, "mission1"), contains(2L, 3L, 4L));
+        assertThat(values.get("mission1"), equalTo(4L));
+    }
+
+    @Test
+    void testConcurrentWriters() {
+
+        LocationHistoryRepository writer1 = repository(10);
+        LocationHistoryRepository writer2 = repository(10);
+        writer1.createAsync("mission1").await().indefinitely();
+        writer1.append("mission1", new ResponderLocationHistory(30.0, -70.0, 1L), false);
+
+        // the second writer appends between the read of the head and the replace of the first writer
+        beforeReplace = () -> writer2.append("mission1", new ResponderLocationHistory(30.1, -70.1, 2L), false);
+        writer1.append("mission1", new ResponderLocationHistory(30.2, -70.2, 3L), false);
+        writer2.append("mission1", new ResponderLocationHistory(30.3, -70.3, 4L), false);
+
+        assertThat(timestamps(writer1, "mission1"), contains(1L, 2L, 3L, 4L));
+        assertThat(values.get("mission1"), equalTo(4L));
+    }
+
+    @Test
+    void testAppendWithoutHistory() {
+
+        LocationHistoryRepository repository = repository(10);
+
+        repository.append("mission1", new ResponderLocationHistory(30.0, -70.0, 1L), false);
+
+        assertThat(values.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void testRemove() {
+
+        LocationHistoryRepository repository = repository(10);
+        repository.createAsync("mission1").await().indefinitely();
+        repository.append("mission1", new ResponderLocationHistory(30.0, -70.0, 1L), false);
+
+        repository.remove("mission1");
+        repository.append("mission1", new ResponderLocationHistory(30.1, -70.1, 2L), false);
+
+        assertThat(repository.get("mission1").isEmpty(), equalTo(true));
+        assertThat(values.containsKey("mission1"), equalTo(false));
+    }
+
+    private LocationHistoryRepository repository(int capacity) {
+        LocationHistoryPolicy policy = new LocationHistoryPolicy();
+        policy.capacity = capacity;
+        LocationHistoryRepository repository = new LocationHistoryRepository();
+        repository.policy = policy;
+        repository.slotLifespan = 60000;
+        repository.historyCache = historyCache;
+        return repository;
+    }
+
+    private static List<Long> timestamps(LocationHistoryRepository repository, String missionKey) {
+        return repository.get(missionKey).stream().map(ResponderLocationHistory::getTimestamp).collect(Collectors.toList());
+    }
+
+    private void write(String key, Object value) {
+        values.put(key, value);
+        versions.put(key, version.incrementAndGet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private RemoteCache<String, Object> historyCache() {
+        RemoteCache<String, Object> cache = mock(RemoteCache.class);
+        when(cache.getAsync(anyString())).thenAnswer(i -> CompletableFuture.completedFuture(values.get(i.<String>getArgument(0))));
+        when(cache.getWithMetadataAsync(anyString())).thenAnswer(i -> {
+            String key = i.getArgument(0);
+            Object value = values.get(key);
+            return CompletableFuture.completedFuture(value == null ? null
+                    : new MetadataValueImpl<>(-1, -1, -1, -1, versions.get(key), value));
+        });
+        when(cache.getAllAsync(anySet())).thenAnswer(i -> {
+            Map<String, Object> found = new HashMap<>();
+            i.<Set<String>>getArgument(0).stream().filter(values::containsKey).forEach(key -> found.put(key, values.get(key)));
+            return CompletableFuture.completedFuture(found);
+        });
+        when(cache.putIfAbsentAsync(anyString(), any())).thenAnswer(i -> {
+            String key = i.getArgument(0);
+            Object previous = values.get(key);
+            if (previous == null) {
+                write(key, i.getArgument(1));
+            }
+            return CompletableFuture.completedFuture(previous);
+        });
+        when(cache.replaceWithVersionAsync(anyString(), any(), anyLong())).thenAnswer(i -> {
+            Runnable interleaved = beforeReplace;
+            beforeReplace = null;
+            if (interleaved != null) {
+                interleaved.run();
+            }
+            String key = i.getArgument(0);
+            boolean replaced = values.containsKey(key) && versions.get(key).equals(i.<Long>getArgument(2));
+            if (replaced) {
+                write(key, i.getArgument(1));
+            }
+            return CompletableFuture.completedFuture(replaced);
+        });
+        when(cache.putAllAsync(anyMap(), anyLong(), any(TimeUnit.class))).thenAnswer(i -> {
+            i.<Map<String, Object>>getArgument(0).forEach(this::write);
+            return CompletableFuture.completedFuture(null);
+        });
+        when(cache.removeAsync(anyString())).thenAnswer(i -> {
+            String key = i.getArgument(0);
+            versions.remove(key);
+            return CompletableFuture.completedFuture(values.remove(key));
+        });
+        return cache;
+    }
+}
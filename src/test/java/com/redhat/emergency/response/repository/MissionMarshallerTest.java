@@ -0,0 +1,122 @@
+package com.redhat.emergency.response.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+
+import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStep;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.infinispan.protostream.FileDescriptorSource;
+import org.infinispan.protostream.ProtobufUtil;
+import org.infinispan.protostream.SerializationContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MissionMarshallerTest {
+
+    private SerializationContext context;
+
+    @BeforeEach
+    void init() throws IOException {
+        context = ProtobufUtil.newSerializationContext();
+        context.registerProtoFiles(FileDescriptorSource.fromResources("META-INF/mission.proto"));
+        context.registerMarshaller(new MissionMarshaller());
+        context.registerMarshaller(new MissionStepMarshaller());
+        context.registerMarshaller(new ResponderLocationHistoryMarshaller());
+        context.registerMarshaller(new MissionStatusEntryMarshaller());
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+
+        JsonObject json = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123")
+                .put("incidentLat", "30.12345").put("incidentLong", "-70.98765")
+                .put("responderStartLat", "31.12345").put("responderStartLong", "-71.98765")
+                .put("destinationLat", "32.12345").put("destinationLong", "-72.98765")
+                .put("status", "COMPLETED")
+                .put("responderLocationHistory", new JsonArray().add(new JsonObject().put("lat", 30.45678).put("lon", -70.65432).put("timestamp", 1593872667576L)))
+                .put("steps", new JsonArray().add(new JsonObject().put("lat", 30.14785).put("lon", -70.91546).put("wayPoint", true).put("destination", false)));
+        Mission mission = json.mapTo(Mission.class);
+
+        byte[] bytes = ProtobufUtil.toWrappedByteArray(context, mission);
+        Mission decoded = ProtobufUtil.fromWrappedByteArray(context, bytes);
+
+        assertThat(bytes.length, lessThan(mission.toJson().length()));
+        assertThat(decoded.getId(), equalTo(mission.getId()));
+        assertThat(decoded.getKey(), equalTo(mission.getKey()));
+        assertThat(decoded.getIncidentLat(), equalTo(30.12345));
+        assertThat(decoded.getIncidentLong(), equalTo(-70.98765));
+        assertThat(decoded.getResponderStartLat(), equalTo(31.12345));
+        assertThat(decoded.getResponderStartLong(), equalTo(-71.98765));
+        assertThat(decoded.getDestinationLat(), equalTo(32.12345));
+        assertThat(decoded.getDestinationLong(), equalTo(-72.98765));
+        assertThat(decoded.getStatus(), equalTo("COMPLETED"));
+        assertThat(decoded.getResponderLocationHistory().size(), equalTo(1));
+        assertThat(decoded.getResponderLocationHistory().get(0).getLat(), equalTo(30.45678));
+        assertThat(decoded.getResponderLocationHistory().get(0).getTimestamp(), equalTo(1593872667576L));
+        assertThat(decoded.getSteps().size(), equalTo(1));
+        MissionStep step = decoded.getSteps().get(0);
+        assertThat(step.getLon(), equalTo(-70.91546));
+        assertThat(step.isWayPoint(), equalTo(true));
+        assertThat(step.isDestination(), equalTo(false));
+    }
+
+    @Test
+    void testActiveMissionWithoutHistory() throws IOException {
+
+        Mission mission = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123").put("status", "UPDATED")
+                .put("responderLocationHistory", new JsonArray().add(new JsonObject().put("lat", 30.45678).put("lon", -70.65432).put("timestamp", 1593872667576L)))
+                .mapTo(Mission.class);
+
+        Mission decoded = ProtobufUtil.fromWrappedByteArray(context, ProtobufUtil.toWrappedByteArray(context, mission));
+
+        assertThat(decoded.getStatus(), equalTo("UPDATED"));
+        assertThat(decoded.getResponderLocationHistory().size(), equalTo(0));
+    }
+
+    @Test
+    void testRoundTripMissingFields() throws IOException {
+
+        Mission mission = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123").mapTo(Mission.class);
+
+        Mission decoded = ProtobufUtil.fromWrappedByteArray(context, ProtobufUtil.toWrappedByteArray(context, mission));
+
+        assertThat(decoded.getId(), equalTo(mission.getId()));
+        assertThat(Double.isNaN(decoded.getIncidentLat()), is(true));
+        assertThat(decoded.getStatus(), nullValue());
+        assertThat(decoded.getSteps().size(), equalTo(0));
+    }
+
+    @Test
+    void testStepsNotEncodable() throws IOException {
+
+        Mission mission = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123")
+                .put("steps", new JsonArray()
+                        .add(new JsonObject().put("lat", 30.14785).put("lon", -70.91546).put("wayPoint", true))
+                        .add(new JsonObject().put("lat", 30.24785).put("lon", -70.81546).put("wayPoint", true)))
+                .mapTo(Mission.class);
+
+        Mission decoded = ProtobufUtil.fromWrappedByteArray(context, ProtobufUtil.toWrappedByteArray(context, mission));
+
+        assertThat(decoded.getSteps().size(), equalTo(2));
+        assertThat(decoded.getSteps().get(1).isWayPoint(), equalTo(true));
+        assertThat(decoded.getSteps().get(1).getLat(), equalTo(30.24785));
+    }
+
+    @Test
+    void testStatusEntryRoundTrip() throws IOException {
+
+        MissionStatusEntry entry = new MissionStatusEntry("incident123:responder123", "CREATED");
+
+        MissionStatusEntry decoded = ProtobufUtil.fromWrappedByteArray(context, ProtobufUtil.toWrappedByteArray(context, entry));
+
+        assertThat(decoded.getMissionKey(), equalTo("incident123:responder123"));
+        assertThat(decoded.getStatus(), equalTo("CREATED"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.redhat.emergency.response.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.redhat.emergency.response.model.Mission;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MissionNearCacheTest {
+
+    private MissionNearCache nearCache;
+
+    @BeforeEach
+    void init() {
+        nearCache = new MissionNearCache();
+        nearCache.enabled = true;
+        nearCache.maxEntries = 2;
+        RemoteCache<String, Object> missionCache = mock(RemoteCache.class);
+        nearCache.listen(missionCache);
+        verify(missionCache).addClientListener(any(MissionNearCache.InvalidationListener.class));
+    }
+
+    @Test
+    void testGetReturnsCopy() {
+
+        Mission mission = Mission.builder("id").incidentId("incident").responderId("responder").build();
+        nearCache.put(mission.getKey(), mission, nearCache.token());
+
+        Mission cached = nearCache.get(mission.getKey());
+
+        assertThat(cached, notNullValue());
+        assertThat(cached, not(sameInstance(mission)));
+        assertThat(cached.getId(), equalTo("id"));
+        assertThat(nearCache.hits(), equalTo(1L));
+    }
+
+    @Test
+    void testPutAfterInvalidateIsIgnored() {
+
+        Mission mission = Mission.builder("id").incidentId("incident").responderId("responder").build();
+        long token = nearCache.token();
+        nearCache.invalidate(mission.getKey());
+        nearCache.put(mission.getKey(), mission, token);
+
+        assertThat(nearCache.get(mission.getKey()), nullValue());
+        assertThat(nearCache.misses(), equalTo(1L));
+    }
+
+    @Test
+    void testPutAfterInvalidateOfOtherKey() {
+
+        Mission mission = Mission.builder("id").incidentId("incident").responderId("responder").build();
+        long token = nearCache.token();
+        nearCache.invalidate("other:responder");
+        nearCache.put(mission.getKey(), mission, token);
+
+        assertThat(nearCache.get(mission.getKey()), notNullValue());
+    }
+
+    @Test
+    void testPutAfterClearIsIgnored() {
+
+        Mission mission = Mission.builder("id").incidentId("incident").responderId("responder").build();
+        long token = nearCache.token();
+        nearCache.clear();
+        nearCache.put(mission.getKey(), mission, token);
+
+        assertThat(nearCache.get(mission.getKey()), nullValue());
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsed() {
+
+        for (String id : new String[]{"1", "2"}) {
+            Mission mission = Mission.builder(id).incidentId("incident" + id).responderId("responder").build();
+            nearCache.put(mission.getKey(), mission, nearCache.token());
+        }
+        nearCache.get("incident1:responder");
+        Mission mission = Mission.builder("3").incidentId("incident3").responderId("responder").build();
+        nearCache.put(mission.getKey(), mission, nearCache.token());
+
+        assertThat(nearCache.size(), equalTo(2L));
+        assertThat(nearCache.get("incident1:responder"), notNullValue());
+        assertThat(nearCache.get("incident2:responder"), nullValue());
+    }
+
+    @Test
+    void testDisabled() {
+
+        MissionNearCache disabled = new MissionNearCache();
+        disabled.listen(mock(RemoteCache.class));
+        Mission mission = Mission.builder("id").incidentId("incident").responderId("responder").build();
+        disabled.put(mission.getKey(), mission, disabled.token());
+
+        assertThat(disabled.isEnabled(), equalTo(false));
+        assertThat(disabled.get(mission.getKey()), nullValue());
+    }
+}
@@ -7,15 +7,21 @@ import static org.hamcrest.Matchers.notNullValue;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStatus;
+import com.redhat.emergency.response.model.ResponderLocationHistory;
 import io.quarkus.test.junit.QuarkusTest;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -25,6 +31,12 @@ public class MissionRepositoryIT {
     @Inject
     MissionRepository missionRepository;
 
+    @Inject
+    LocationHistoryRepository historyRepository;
+
+    @Inject
+    RemoteCacheManager cacheManager;
+
     @BeforeEach
     void clearCache() {
         missionRepository.clear();
@@ -46,25 +58,83 @@ public class MissionRepositoryIT {
         Mission mission = json.mapTo(Mission.class);
 
         missionRepository.add(mission); 
+        missionRepository.appendLocation(mission.getKey(), new ResponderLocationHistory(30.45678, -70.65432, Instant.now().toEpochMilli()), false);
 
 	Optional<Mission> fromCache = missionRepository.get(mission.getKey()); 
 
         assertThat(fromCache.isPresent(), is(true));
         assertThat(fromCache.get().getId(), notNullValue());
         assertThat(fromCache.get().getIncidentId(), equalTo("incident123"));
-        assertThat(fromCache.get().getIncidentLat(), equalTo(new BigDecimal("30.12345")));
-        assertThat(fromCache.get().getIncidentLong(), equalTo(new BigDecimal("-70.98765")));
+        assertThat(fromCache.get().getIncidentLat(), equalTo(30.12345));
+        assertThat(fromCache.get().getIncidentLong(), equalTo(-70.98765));
         assertThat(fromCache.get().getResponderId(), equalTo("responder123"));
-        assertThat(fromCache.get().getResponderStartLat(), equalTo(new BigDecimal("31.12345")));
-        assertThat(fromCache.get().getResponderStartLong(), equalTo(new BigDecimal("-71.98765")));
-        assertThat(fromCache.get().getDestinationLat(), equalTo(new BigDecimal("32.12345")));
-        assertThat(fromCache.get().getDestinationLong(), equalTo(new BigDecimal("-72.98765")));
+        assertThat(fromCache.get().getResponderStartLat(), equalTo(31.12345));
+        assertThat(fromCache.get().getResponderStartLong(), equalTo(-71.98765));
+        assertThat(fromCache.get().getDestinationLat(), equalTo(32.12345));
+        assertThat(fromCache.get().getDestinationLong(), equalTo(-72.98765));
         assertThat(fromCache.get().getStatus(), equalTo("CREATED"));
         assertThat(fromCache.get().getResponderLocationHistory().size(), equalTo(1));
         assertThat(fromCache.get().getSteps().size(), equalTo(1));
 
     }
 
+    @Test
+    void testCompletedMissionKeepsHistory() {
+
+        JsonObject json = new JsonObject().put("id", UUID.randomUUID().toString()).put("incidentId", "incident123")
+                .put("incidentLat", 30.12345).put("incidentLong", -70.98765)
+                .put("responderId", "responder123")
+                .put("responderStartLat", 31.12345).put("responderStartLong", -71.98765)
+                .put("destinationLat", 32.12345).put("destinationLong", -72.98765)
+                .put("status", "CREATED");
+
+        Mission mission = json.mapTo(Mission.class);
+
+        missionRepository.add(mission);
+        missionRepository.appendLocation(mission.getKey(), new ResponderLocationHistory(30.45678, -70.65432, 1593872667576L), false);
+        missionRepository.appendLocation(mission.getKey(), new ResponderLocationHistory(30.45679, -70.65433, 1593872668576L), false);
+
+        Mission fromCache = missionRepository.get(mission.getKey()).orElseThrow();
+        assertThat(fromCache.getResponderLocationHistory().size(), equalTo(2));
+
+        missionRepository.add(fromCache.status(MissionStatus.COMPLETED));
+
+        fromCache = missionRepository.get(mission.getKey()).orElseThrow();
+        assertThat(fromCache.getStatus(), equalTo("COMPLETED"));
+        assertThat(fromCache.getResponderLocationHistory().size(), equalTo(2));
+        assertThat(fromCache.getResponderLocationHistory().get(1).getLat(), equalTo(30.45679));
+    }
+
+    @Test
+    void testAppendLocationToUnknownMissionIsIgnored() {
+
+        missionRepository.appendLocation("incident123:responder456", new ResponderLocationHistory(30.45678, -70.65432, 1593872667576L), false);
+
+        assertThat(missionRepository.get("incident123:responder456").isPresent(), is(false));
+        assertThat(historyRepository.get("incident123:responder456").isEmpty(), is(true));
+    }
+
+    @Test
+    void testUpdateMission() {
+
+        Mission mission = Mission.builder(UUID.randomUUID().toString()).incidentId("incident123").responderId("responder123")
+                .status("CREATED").build();
+        missionRepository.add(mission);
+
+        Optional<Mission> updated = missionRepository.update(mission.getKey(), m -> {
+            // a concurrent write forces a retry of the first attempt
+            if ("CREATED".equals(m.getStatus())) {
+                missionRepository.add(Mission.builder(m.getId()).incidentId("incident123").responderId("responder123")
+                        .status("UPDATED").build());
+            }
+            return m.status(MissionStatus.COMPLETED);
+        });
+
+        assertThat(updated.isPresent(), is(true));
+        assertThat(missionRepository.get(mission.getKey()).orElseThrow().getStatus(), equalTo("COMPLETED"));
+        assertThat(missionRepository.update("unknown:responder", m -> m).isPresent(), is(false));
+    }
+
     @Test
     void testGetAllMissions() {
 
@@ -100,6 +170,69 @@ public class MissionRepositoryIT {
         assertThat(fromCache.size(), equalTo(2));
     }
 
+    @Test
+    void testForEachPage() {
+
+        for (int i = 0; i < 5; i++) {
+            missionRepository.add(Mission.builder(UUID.randomUUID().toString()).incidentId("incident" + i)
+                    .responderId("responder" + i).status("CREATED").build());
+        }
+
+        List<Mission> all = new ArrayList<>();
+        missionRepository.forEach(0, Integer.MAX_VALUE, all::add);
+        List<Mission> page = new ArrayList<>();
+        missionRepository.forEach(1, 3, page::add);
+
+        assertThat(all.size(), equalTo(5));
+        assertThat(page.size(), equalTo(3));
+        assertThat(page.get(0).getId(), equalTo(all.get(1).getId()));
+    }
+
+    @Test
+    void testForEachActivePage() {
+
+        for (int i = 0; i < 5; i++) {
+            missionRepository.add(Mission.builder(UUID.randomUUID().toString()).incidentId("incident" + i)
+                    .responderId("responder" + i).status("CREATED").build());
+        }
+        missionRepository.add(Mission.builder(UUID.randomUUID().toString()).incidentId("incident5")
+                .responderId("responder5").status("COMPLETED").build());
+
+        List<String> all = new ArrayList<>();
+        missionRepository.forEachActive(EnumSet.of(MissionStatus.CREATED), 0, Integer.MAX_VALUE, m -> all.add(m.getKey()));
+        List<String> page = new ArrayList<>();
+        missionRepository.forEachActive(EnumSet.of(MissionStatus.CREATED), 1, 3, m -> page.add(m.getKey()));
+
+        assertThat(all.size(), equalTo(5));
+        assertThat(all, equalTo(all.stream().sorted().collect(Collectors.toList())));
+        assertThat(page, equalTo(all.subList(1, 4)));
+    }
+
+    @Test
+    void testGetByStatus() {
+
+        Mission created = Mission.builder(UUID.randomUUID().toString()).incidentId("incident1").responderId("responder1")
+                .status("CREATED").build();
+        Mission updated = Mission.builder(UUID.randomUUID().toString()).incidentId("incident2").responderId("responder2")
+                .status("CREATED").build();
+        Mission completed = Mission.builder(UUID.randomUUID().toString()).incidentId("incident3").responderId("responder3")
+                .status("CREATED").build();
+        missionRepository.add(created);
+        missionRepository.add(updated);
+        missionRepository.add(completed);
+        missionRepository.update(updated.getKey(), m -> m.status(MissionStatus.UPDATED));
+        missionRepository.update(completed.getKey(), m -> m.status(MissionStatus.COMPLETED));
+
+        List<Mission> createdMissions = missionRepository.getByStatus(MissionStatus.CREATED);
+        List<Mission> updatedMissions = missionRepository.getByStatus(MissionStatus.UPDATED);
+
+        assertThat(createdMissions.size(), equalTo(1));
+        assertThat(createdMissions.get(0).getId(), equalTo(created.getId()));
+        assertThat(updatedMissions.size(), equalTo(1));
+        assertThat(updatedMissions.get(0).getId(), equalTo(updated.getId()));
+        assertThat(missionRepository.getActive().size(), equalTo(2));
+    }
+
     @Test
     void testClear() {
 
@@ -148,6 +281,162 @@ public class MissionRepositoryIT {
 
     }
 
+    @Test
+    void testGetByResponderIdMultipleMissions() {
+
+        JsonObject json = new JsonObject().put("id", UUID.randomUUID().toString()).put("incidentId", "incident123")
+                .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
+                .put("responderId", "responder123")
+                .put("responderStartLat", new BigDecimal("31.12345").doubleValue()).put("responderStartLong", new BigDecimal("-71.98765").doubleValue())
+                .put("destinationLat", new BigDecimal("32.12345").doubleValue()).put("destinationLong", new BigDecimal("-72.98765").doubleValue())
+                .put("status", "COMPLETED");
+
+        Mission mission = json.mapTo(Mission.class);
+
+        JsonObject json2 = json.copy().put("id", UUID.randomUUID().toString()).put("incidentId", "incident456").put("status", "CREATED");
+
+        Mission mission2 = json2.mapTo(Mission.class);
+
+        missionRepository.add(mission);
+        missionRepository.add(mission2);
+        missionRepository.add(mission2);
+
+        List<Mission> fromCache = missionRepository.getByResponderId("responder123");
+
+        assertThat(fromCache.size(), equalTo(2));
+        assertThat(missionRepository.getByResponderId("responder456").size(), equalTo(0));
+    }
+
+    @Test
+    void testGetByResponderIdKeepsLastCompletedMissions() {
+
+        JsonObject json = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123")
+                .put("incidentLat", 30.12345).put("incidentLong", -70.98765).put("status", "COMPLETED");
+        for (int i = 0; i < missionRepository.maxCompleted + 2; i++) {
+            missionRepository.add(json.copy().put("id", UUID.randomUUID().toString()).put("incidentId", "incident" + i).mapTo(Mission.class));
+        }
+        missionRepository.add(json.copy().put("id", UUID.randomUUID().toString()).put("incidentId", "incidentActive")
+                .put("status", "CREATED").mapTo(Mission.class));
+
+        List<Mission> fromCache = missionRepository.getByResponderId("responder123");
+
+        assertThat(fromCache.size(), equalTo(missionRepository.maxCompleted + 1));
+        assertThat(fromCache.stream().anyMatch(m -> m.getIncidentId().equals("incident0")), is(false));
+        assertThat(fromCache.stream().anyMatch(m -> m.getIncidentId().equals("incidentActive")), is(true));
+    }
+
+    @Test
+    void testArchiveCompletedAndFailedMissions() {
+
+        MissionRepository repository = archivingRepository();
+        Mission completed = Mission.builder(UUID.randomUUID().toString()).incidentId("incident1").responderId("responder1")
+                .status("CREATED").build();
+        Mission failed = Mission.builder(UUID.randomUUID().toString()).incidentId("incident2").responderId("responder1")
+                .status("CREATED").build();
+        repository.add(completed);
+        repository.add(failed);
+
+        repository.update(completed.getKey(), m -> m.status(MissionStatus.COMPLETED));
+        repository.add(repository.get(failed.getKey()).orElseThrow().status(MissionStatus.FAILED));
+
+        assertThat(repository.missionCache.containsKey(completed.getKey()), is(false));
+        assertThat(repository.missionCache.containsKey(failed.getKey()), is(false));
+        assertThat(repository.archiveCache.get(completed.getKey()).getStatus(), equalTo("COMPLETED"));
+        assertThat(repository.archiveCache.get(failed.getKey()).getStatus(), equalTo("FAILED"));
+        assertThat(repository.getAll().size(), equalTo(0));
+    }
+
+    @Test
+    void testGetArchivedMission() {
+
+        MissionRepository repository = archivingRepository();
+        Mission mission = Mission.builder(UUID.randomUUID().toString()).incidentId("incident1").responderId("responder1")
+                .status("CREATED").build();
+        repository.add(mission);
+        repository.appendLocation(mission.getKey(), new ResponderLocationHistory(30.45678, -70.65432, 1593872667576L), false);
+
+        repository.update(mission.getKey(), m -> m.status(MissionStatus.COMPLETED));
+
+        Mission fromCache = repository.get(mission.getKey()).orElseThrow();
+        assertThat(fromCache.getStatus(), equalTo("COMPLETED"));
+        assertThat(fromCache.getResponderLocationHistory().size(), equalTo(1));
+        assertThat(repository.get("unknown:responder").isPresent(), is(false));
+    }
+
+    @Test
+    void testForEachPageWithArchive() {
+
+        MissionRepository repository = archivingRepository();
+        for (int i = 0; i < 5; i++) {
+            repository.add(Mission.builder(UUID.randomUUID().toString()).incidentId("incident" + i)
+                    .responderId("responder" + i).status(i < 2 ? "CREATED" : "COMPLETED").build());
+        }
+
+        List<Mission> all = new ArrayList<>();
+        repository.forEach(0, Integer.MAX_VALUE, all::add);
+        List<Mission> page = new ArrayList<>();
+        repository.forEach(1, 3, page::add);
+
+        assertThat(all.size(), equalTo(5));
+        assertThat(all.stream().filter(Mission::isActive).count(), equalTo(2L));
+        assertThat(page.stream().map(Mission::getId).collect(Collectors.toList()),
+                equalTo(all.subList(1, 4).stream().map(Mission::getId).collect(Collectors.toList())));
+    }
+
+    @Test
+    void testForEachSkipsMissionLeftAfterArchive() {
+
+        MissionRepository repository = archivingRepository();
+        Mission mission = Mission.builder(UUID.randomUUID().toString()).incidentId("incident1").responderId("responder1")
+                .status("COMPLETED").build();
+        repository.add(mission);
+        // the removal from the mission cache failed after the mission was archived
+        repository.missionCache.put(mission.getKey(), mission);
 
+        List<Mission> all = new ArrayList<>();
+        repository.forEach(0, Integer.MAX_VALUE, all::add);
 
+        assertThat(all.size(), equalTo(1));
+        assertThat(all.get(0).getId(), equalTo(mission.getId()));
+    }
+
+    @Test
+    void testArchivedMissionLeavesResponderIndex() {
+
+        MissionRepository repository = archivingRepository();
+        Mission active = Mission.builder(UUID.randomUUID().toString()).incidentId("incident1").responderId("responder1")
+                .status("CREATED").build();
+        Mission completed = Mission.builder(UUID.randomUUID().toString()).incidentId("incident2").responderId("responder1")
+                .status("CREATED").build();
+        repository.add(active);
+        repository.add(completed);
+        assertThat(repository.getByResponderId("responder1").size(), equalTo(2));
+
+        repository.update(completed.getKey(), m -> m.status(MissionStatus.COMPLETED));
+
+        List<Mission> fromCache = repository.getByResponderId("responder1");
+        assertThat(fromCache.size(), equalTo(1));
+        assertThat(fromCache.get(0).getId(), equalTo(active.getId()));
+        assertThat(repository.responderIndexCache.containsKey("responder1:completed"), is(false));
+    }
+
+    /**
+     * A repository on the same caches as the injected one, with the archive enabled.
+     */
+    private MissionRepository archivingRepository() {
+        MissionRepository repository = new MissionRepository();
+        repository.cacheManager = cacheManager;
+        repository.historyRepository = historyRepository;
+        repository.nearCache = new MissionNearCache();
+        repository.cacheName = "mission";
+        repository.responderIndexCacheName = "mission-responder-index";
+        repository.statusIndexCacheName = "mission-status-index";
+        repository.archiveCacheName = "mission-archive";
+        repository.archiveEnabled = true;
+        repository.archiveLifespan = -1;
+        repository.maxCompleted = 10;
+        repository.onStart(null);
+        repository.clear();
+        return repository;
+    }
 }
@@ -7,13 +7,21 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.function.Predicate;
 
 import com.redhat.emergency.response.model.Mission;
+import com.redhat.emergency.response.model.MissionStatus;
 import com.redhat.emergency.response.repository.MissionRepository;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -47,7 +55,12 @@ public class RestApiTest {
                 "\"steps\":[],\"status\":\"CREATED\"}";
         Mission mission2 = Json.decodeValue(m2, Mission.class);
 
-        when(repository.getAll()).thenReturn(Arrays.asList(mission1, mission2));
+        doAnswer(invocation -> {
+            Predicate<Mission> consumer = invocation.getArgument(2);
+            consumer.test(mission1);
+            consumer.test(mission2);
+            return null;
+        }).when(repository).forEach(eq(0), eq(Integer.MAX_VALUE), any());
 
         String response = RestAssured.get("/api/missions").then()
                 .assertThat()
@@ -61,7 +74,29 @@ public class RestApiTest {
         assertThat(response, jsonNodePresent("[1]"));
         assertThat(response, jsonNodeAbsent("[2]"));
         assertThat(response, jsonPartMatches("[0].id", anyOf(equalTo("f5a9bc5e-408c-4f86-8592-6f67bb73c5fd"), equalTo("f5a9bc5e-408c-4f86-8592-6f67bb73c5ff"))));
-        verify(repository).getAll();
+        verify(repository).forEach(eq(0), eq(Integer.MAX_VALUE), any());
+    }
+
+    @Test
+    void testGetAllPage() {
+
+        RestAssured.get("/api/missions?offset=20&limit=10").then()
+                .assertThat()
+                .statusCode(200)
+                .contentType("application/json")
+                .body(equalTo("[]"));
+
+        verify(repository).forEach(eq(20), eq(10), any());
+    }
+
+    @Test
+    void testGetAllBadPage() {
+
+        RestAssured.get("/api/missions?offset=abc").then()
+                .assertThat()
+                .statusCode(400);
+
+        verify(repository, never()).forEach(anyInt(), anyInt(), any());
     }
 
     @Test
@@ -146,4 +181,69 @@ public class RestApiTest {
 
         verify(repository).getByResponderId("64");
     }
+
+    @Test
+    void testActiveMissions() {
+
+        Mission mission = Mission.builder("f5a9bc5e-408c-4f86-8592-6f67bb73c5fd").incidentId("5d9b2d3a-136f-414f-96ba-1b2a445fee5d")
+                .responderId("64").status("UPDATED").build();
+
+        doAnswer(invocation -> {
+            Predicate<Mission> consumer = invocation.getArgument(3);
+            consumer.test(mission);
+            return null;
+        }).when(repository).forEachActive(eq(EnumSet.of(MissionStatus.CREATED, MissionStatus.UPDATED)), eq(0), eq(Integer.MAX_VALUE), any());
+
+        String response = RestAssured.get("/api/missions/active").then()
+                .assertThat()
+                .statusCode(200)
+                .contentType("application/json")
+                .extract()
+                .asString();
+
+        assertThat(response, jsonNodePresent("[0]"));
+        assertThat(response, jsonNodeAbsent("[1]"));
+        assertThat(response, jsonPartMatches("[0].status", equalTo("UPDATED")));
+    }
+
+    @Test
+    void testMissionsByStatus() {
+
+        Mission mission = Mission.builder("f5a9bc5e-408c-4f86-8592-6f67bb73c5fd").incidentId("5d9b2d3a-136f-414f-96ba-1b2a445fee5d")
+                .responderId("64").status("CREATED").build();
+
+        doAnswer(invocation -> {
+            Predicate<Mission> consumer = invocation.getArgument(3);
+            consumer.test(mission);
+            return null;
+        }).when(repository).forEachActive(eq(EnumSet.of(MissionStatus.CREATED)), eq(0), eq(Integer.MAX_VALUE), any());
+
+        RestAssured.get("/api/missions/status/created").then()
+                .assertThat()
+                .statusCode(200)
+                .contentType("application/json")
+                .body("[0].id", equalTo("f5a9bc5e-408c-4f86-8592-6f67bb73c5fd"));
+
+        verify(repository).forEachActive(eq(EnumSet.of(MissionStatus.CREATED)), eq(0), eq(Integer.MAX_VALUE), any());
+    }
+
+    @Test
+    void testMissionsByCompletedStatus() {
+
+        RestAssured.get("/api/missions/status/COMPLETED?limit=10").then()
+                .assertThat()
+                .statusCode(200)
+                .body(equalTo("[]"));
+
+        verify(repository).forEach(any(), eq(0), eq(10), any());
+        verify(repository, never()).forEachActive(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testMissionsByUnknownStatus() {
+
+        RestAssured.get("/api/missions/status/unknown").then()
+                .assertThat()
+                .statusCode(400);
+    }
 }
@@ -8,6 +8,7 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import javax.enterprise.inject.Any;
 import javax.inject.Inject;
 
@@ -16,6 +17,7 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
 import io.smallrye.reactive.messaging.connectors.InMemorySink;
 import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecord;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,7 +41,7 @@ public class EventSinkTest {
     @Test
     void testMissionStarted() {
 
-        InMemorySink<String> results = connector.sink("mission-event");
+        InMemorySink<byte[]> results = connector.sink("mission-event");
 
         JsonObject json = new JsonObject().put("incidentId", "incident123")
                 .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
@@ -53,10 +55,10 @@ public class EventSinkTest {
         eventSink.missionStarted(mission).await().indefinitely();
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("incident123"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "MissionStartedEvent"));
@@ -80,10 +82,29 @@ public class EventSinkTest {
         assertThat(value, jsonPartEquals("body.status", "CREATED"));
     }
 
+    @Test
+    void testMissionWithStepsAndHistory() {
+
+        InMemorySink<byte[]> results = connector.sink("mission-event");
+
+        JsonObject json = new JsonObject().put("incidentId", "incident123").put("responderId", "responder123")
+                .put("status", "UPDATED")
+                .put("responderLocationHistory", new JsonArray().add(new JsonObject().put("lat", 30.45678).put("lon", -70.65432).put("timestamp", 1593872667576L)))
+                .put("steps", new JsonArray().add(new JsonObject().put("lat", 30.14785).put("lon", -70.91546).put("wayPoint", true).put("destination", false)));
+
+        Mission mission = json.mapTo(Mission.class);
+
+        eventSink.missionPickedUp(mission).await().indefinitely();
+
+        assertThat(results.received().size(), equalTo(1));
+        String value = new String(results.received().get(0).getPayload(), StandardCharsets.UTF_8);
+        assertThat(value, jsonPartEquals("body", mission.toJson()));
+    }
+
     @Test
     void testMissionPickedUp() {
 
-        InMemorySink<String> results = connector.sink("mission-event");
+        InMemorySink<byte[]> results = connector.sink("mission-event");
 
         JsonObject json = new JsonObject().put("incidentId", "incident123")
                 .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
@@ -97,10 +118,10 @@ public class EventSinkTest {
         eventSink.missionPickedUp(mission).await().indefinitely();
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("incident123"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "MissionPickedUpEvent"));
@@ -127,7 +148,7 @@ public class EventSinkTest {
     @Test
     void testMissionCompleted() {
 
-        InMemorySink<String> results = connector.sink("mission-event");
+        InMemorySink<byte[]> results = connector.sink("mission-event");
 
         JsonObject json = new JsonObject().put("incidentId", "incident123")
                 .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
@@ -141,10 +162,10 @@ public class EventSinkTest {
         eventSink.missionCompleted(mission).await().indefinitely();
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("incident123"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "MissionCompletedEvent"));
@@ -171,7 +192,7 @@ public class EventSinkTest {
     @Test
     void testResponderCommand() {
 
-        InMemorySink<String> results = connector.sink("responder-command");
+        InMemorySink<byte[]> results = connector.sink("responder-command");
 
         JsonObject json = new JsonObject().put("incidentId", "incident123")
                 .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
@@ -182,13 +203,13 @@ public class EventSinkTest {
 
         Mission mission = json.mapTo(Mission.class);
 
-        eventSink.responderCommand(mission, new BigDecimal("30.98765"), new BigDecimal("-70.12345"), false).await().indefinitely();
+        eventSink.responderCommand(mission, 30.98765, -70.12345, false).await().indefinitely();
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("responder123"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("id", "${json-unit.regex}[a-f0-9]{8}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{12}"));
@@ -207,7 +228,7 @@ public class EventSinkTest {
     @Test
     void testResponderCommandWhenPersonResponder() {
 
-        InMemorySink<String> results = connector.sink("responder-command");
+        InMemorySink<byte[]> results = connector.sink("responder-command");
 
         JsonObject json = new JsonObject().put("incidentId", "incident123")
                 .put("incidentLat", new BigDecimal("30.12345").doubleValue()).put("incidentLong", new BigDecimal("-70.98765").doubleValue())
@@ -218,13 +239,13 @@ public class EventSinkTest {
 
         Mission mission = json.mapTo(Mission.class);
 
-        eventSink.responderCommand(mission, new BigDecimal("30.98765"), new BigDecimal("-70.12345"), true).await().indefinitely();
+        eventSink.responderCommand(mission, 30.98765, -70.12345, true).await().indefinitely();
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("responder123"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("id", "${json-unit.regex}[a-f0-9]{8}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{4}-[a-f0-9]{12}"));
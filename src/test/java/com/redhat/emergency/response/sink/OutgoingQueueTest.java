@@ -0,0 +1,134 @@
+package com.redhat.emergency.response.sink;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class OutgoingQueueTest {
+
+    @Test
+    void testPublishOnDemand() {
+
+        OutgoingQueue<Integer> queue = new OutgoingQueue<>("test", 10, OutgoingQueue.OverflowStrategy.FAIL);
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+
+        queue.offer(1).await().indefinitely();
+        queue.offer(2).await().indefinitely();
+        queue.offer(3).await().indefinitely();
+        assertThat(subscriber.items.isEmpty(), equalTo(true));
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.items, contains(1, 2));
+        assertThat(queue.size(), equalTo(1));
+
+        subscriber.subscription.request(5);
+        queue.offer(4).await().indefinitely();
+        assertThat(subscriber.items, contains(1, 2, 3, 4));
+        assertThat(queue.size(), equalTo(0));
+    }
+
+    @Test
+    void testBlock() {
+
+        OutgoingQueue<Integer> queue = new OutgoingQueue<>("test", 1, OutgoingQueue.OverflowStrategy.BLOCK);
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+
+        queue.offer(1).await().indefinitely();
+        CompletableFuture<Void> queued = queue.offer(2).subscribeAsCompletionStage();
+        assertThat(queued.isDone(), equalTo(false));
+        assertThat(queue.size(), equalTo(2));
+
+        subscriber.subscription.request(1);
+        assertThat(queued.isDone(), equalTo(true));
+        subscriber.subscription.request(1);
+        assertThat(subscriber.items, contains(1, 2));
+    }
+
+    @Test
+    void testFail() {
+
+        OutgoingQueue<Integer> queue = new OutgoingQueue<>("test", 1, OutgoingQueue.OverflowStrategy.FAIL);
+
+        queue.offer(1).await().indefinitely();
+        CompletableFuture<Void> rejected = queue.offer(2).subscribeAsCompletionStage();
+
+        assertThat(rejected.isCompletedExceptionally(), equalTo(true));
+        assertThat(queue.size(), equalTo(1));
+    }
+
+    @Test
+    void testOrderPerProducer() throws InterruptedException {
+
+        OutgoingQueue<Integer> queue = new OutgoingQueue<>("test", 16, OutgoingQueue.OverflowStrategy.BLOCK);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        TestSubscriber subscriber = new TestSubscriber() {
+            @Override
+            public void onNext(Integer item) {
+                received.add(item);
+                subscription().request(1);
+            }
+        };
+        queue.subscribe(subscriber);
+        subscriber.subscription().request(1);
+
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            int producer = p;
+            producers.execute(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    queue.offer(producer * 10000 + i).await().indefinitely();
+                }
+            });
+        }
+        producers.shutdown();
+        assertThat(producers.awaitTermination(10, TimeUnit.SECONDS), equalTo(true));
+
+        assertThat(received.size(), equalTo(4000));
+        int[] last = {-1, -1, -1, -1};
+        for (int item : received) {
+            assertThat(item % 10000 > last[item / 10000], equalTo(true));
+            last[item / 10000] = item % 10000;
+        }
+    }
+
+    private static class TestSubscriber implements Subscriber<Integer> {
+
+        private final List<Integer> items = new ArrayList<>();
+
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        Subscription subscription() {
+            return subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {}
+
+        @Override
+        public void onComplete() {}
+    }
+}
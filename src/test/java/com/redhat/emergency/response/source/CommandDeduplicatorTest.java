@@ -0,0 +1,198 @@
+package com.redhat.emergency.response.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.RemoteCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CommandDeduplicatorTest {
+
+    private CommandDeduplicator deduplicator;
+
+    @BeforeEach
+    void init() {
+        deduplicator = deduplicator();
+    }
+
+    @Test
+    void testDuplicate() {
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+        deduplicator.done("command1").await().indefinitely();
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(false));
+        assertThat(deduplicator.claim("command2").await().indefinitely(), equalTo(true));
+        assertThat(deduplicator.duplicates(), equalTo(1L));
+    }
+
+    @Test
+    void testRelease() {
+
+        deduplicator.claim("command1").await().indefinitely();
+        deduplicator.release("command1");
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+    }
+
+    @Test
+    void testMaxEntries() {
+
+        for (String id : new String[]{"command1", "command2", "command3"}) {
+            deduplicator.claim(id).await().indefinitely();
+            deduplicator.done(id).await().indefinitely();
+        }
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+        assertThat(deduplicator.claim("command3").await().indefinitely(), equalTo(false));
+    }
+
+    @Test
+    void testExpired() {
+
+        deduplicator.ttl = 0;
+        deduplicator.claim("command1").await().indefinitely();
+        deduplicator.done("command1").await().indefinitely();
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+    }
+
+    @Test
+    void testClaimWaitsForDone() throws Exception {
+
+        deduplicator.claim("command1").await().indefinitely();
+        CompletableFuture<Boolean> second = deduplicator.claim("command1").subscribeAsCompletionStage();
+
+        Thread.sleep(50);
+        assertThat(second.isDone(), equalTo(false));
+        deduplicator.done("command1").await().indefinitely();
+
+        assertThat(second.get(5, TimeUnit.SECONDS), equalTo(false));
+    }
+
+    @Test
+    void testClaimLeaseExpires() throws Exception {
+
+        deduplicator.lease = 50;
+        deduplicator.claim("command1").await().indefinitely();
+
+        // the first claim is never done, as if its node stopped
+        assertThat(deduplicator.claim("command1").subscribeAsCompletionStage().get(5, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    void testDisabled() {
+
+        CommandDeduplicator disabled = new CommandDeduplicator();
+
+        assertThat(disabled.claim("command1").await().indefinitely(), equalTo(true));
+        assertThat(disabled.claim("command1").await().indefinitely(), equalTo(true));
+    }
+
+    @Test
+    void testSharedClaim() {
+
+        RemoteCache<String, String> commandCache = commandCache();
+        when(commandCache.putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(commandCache.putAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(CommandDeduplicator.CLAIMED));
+        deduplicator.commandCache = commandCache;
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+        deduplicator.done("command1").await().indefinitely();
+
+        verify(commandCache).withFlags(Flag.FORCE_RETURN_VALUE);
+        verify(commandCache).putIfAbsentAsync("command1", CommandDeduplicator.CLAIMED, 60000, TimeUnit.MILLISECONDS);
+        verify(commandCache).putAsync("command1", CommandDeduplicator.DONE, 3600000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void testSharedDuplicate() {
+
+        // the command was processed by another node
+        RemoteCache<String, String> commandCache = commandCache();
+        when(commandCache.putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(CommandDeduplicator.DONE));
+        deduplicator.commandCache = commandCache;
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(false));
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(false));
+        assertThat(deduplicator.duplicates(), equalTo(2L));
+        verify(commandCache, times(1)).putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void testSharedClaimedElsewhere() {
+
+        // the command is claimed by another node, whose lease then expires
+        RemoteCache<String, String> commandCache = commandCache();
+        when(commandCache.putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(CommandDeduplicator.CLAIMED), CompletableFuture.completedFuture(null));
+        deduplicator.commandCache = commandCache;
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+        verify(commandCache, times(2)).putIfAbsentAsync(eq("command1"), eq(CommandDeduplicator.CLAIMED), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void testSharedClaimFails() {
+
+        RemoteCache<String, String> commandCache = commandCache();
+        when(commandCache.putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("grid unavailable")));
+        deduplicator.commandCache = commandCache;
+
+        assertThat(deduplicator.claim("command1").await().indefinitely(), equalTo(true));
+    }
+
+    @Test
+    void testSharedClaimNeverReleased() {
+
+        // the command is claimed again by other nodes every time their lease expires
+        deduplicator.lease = 50;
+        RemoteCache<String, String> commandCache = commandCache();
+        when(commandCache.putIfAbsentAsync(anyString(), anyString(), anyLong(), any(TimeUnit.class)))
+                .thenReturn(CompletableFuture.completedFuture(CommandDeduplicator.CLAIMED));
+        deduplicator.commandCache = commandCache;
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> deduplicator.claim("command1").subscribeAsCompletionStage().get(5, TimeUnit.SECONDS));
+
+        assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+
+    private CommandDeduplicator deduplicator() {
+        CommandDeduplicator deduplicator = new CommandDeduplicator();
+        deduplicator.enabled = true;
+        deduplicator.maxEntries = 2;
+        deduplicator.ttl = 3600000;
+        deduplicator.lease = 60000;
+        deduplicator.retryInterval = 10;
+        deduplicator.onStart(null);
+        return deduplicator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RemoteCache<String, String> commandCache() {
+        RemoteCache<String, String> commandCache = mock(RemoteCache.class);
+        when(commandCache.withFlags(Flag.FORCE_RETURN_VALUE)).thenReturn(commandCache);
+        return commandCache;
+    }
+}
@@ -0,0 +1,125 @@
+package com.redhat.emergency.response.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor("test", 4, 100);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testOrderPerKey() throws InterruptedException {
+
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> acked = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(10);
+
+        for (int i = 0; i < 10; i++) {
+            int item = i;
+            executor.submit("mission1", () -> Uni.createFrom().item(item).onItem().invoke(processed::add), () -> {
+                acked.add(item);
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            }).await().indefinitely();
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(processed, contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        assertThat(acked, contains(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    }
+
+    @Test
+    void testAckInSubmissionOrder() throws InterruptedException {
+
+        List<String> acked = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch slow = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        executor.submit("mission1", () -> Uni.createFrom().item(() -> {
+            try {
+                slow.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        }), () -> ack(acked, "mission1", latch)).await().indefinitely();
+        executor.submit("mission2", () -> Uni.createFrom().item(2), () -> ack(acked, "mission2", latch)).await().indefinitely();
+        executor.submit(null, null, () -> ack(acked, "ignored", latch)).await().indefinitely();
+
+        assertThat(acked.isEmpty(), equalTo(true));
+        slow.countDown();
+        assertThat(latch.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(acked, contains("mission1", "mission2", "ignored"));
+    }
+
+    @Test
+    void testFailureStopsAcks() throws InterruptedException {
+
+        List<String> acked = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+
+        executor.submit("mission0", () -> Uni.createFrom().item(0), () -> ack(acked, "mission0", latch)).await().indefinitely();
+        executor.submit("mission1", () -> Uni.createFrom().completionStage(failed),
+                () -> ack(acked, "mission1", latch)).await().indefinitely();
+        executor.submit("mission2", () -> Uni.createFrom().item(2), () -> ack(acked, "mission2", latch)).await().indefinitely();
+        assertThat(latch.await(5, TimeUnit.SECONDS), equalTo(true));
+        failed.completeExceptionally(new IllegalStateException("failure"));
+
+        Thread.sleep(100);
+        assertThat(acked, contains("mission0"));
+        assertThrows(IllegalStateException.class, () -> executor.submit("mission3", () -> Uni.createFrom().item(3),
+                () -> ack(acked, "mission3", latch)).await().indefinitely());
+    }
+
+    @Test
+    void testBoundedLane() throws Exception {
+
+        KeyOrderedExecutor bounded = new KeyOrderedExecutor("bounded", 1, 1);
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        try {
+            bounded.submit("mission1", () -> Uni.createFrom().completionStage(gate).onItem().invoke(v -> processed.add(1)),
+                    () -> CompletableFuture.completedFuture(null)).await().indefinitely();
+            // the first message is running, the second one fills the queue
+            Thread.sleep(50);
+            bounded.submit("mission1", () -> Uni.createFrom().item(2).onItem().invoke(processed::add),
+                    () -> CompletableFuture.completedFuture(null)).await().indefinitely();
+            CompletableFuture<Void> third = bounded.submit("mission1", () -> Uni.createFrom().item(3).onItem().invoke(processed::add),
+                    () -> CompletableFuture.completedFuture(null)).subscribeAsCompletionStage();
+
+            Thread.sleep(50);
+            assertThat(third.isDone(), equalTo(false));
+            gate.complete(null);
+            third.get(5, TimeUnit.SECONDS);
+            Thread.sleep(50);
+            assertThat(processed, contains(1, 2, 3));
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> ack(List<String> acked, String key, CountDownLatch latch) {
+        acked.add(key);
+        latch.countDown();
+        return CompletableFuture.completedFuture(null);
+    }
+}
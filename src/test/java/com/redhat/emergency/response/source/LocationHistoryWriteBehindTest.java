@@ -0,0 +1,105 @@
+package com.redhat.emergency.response.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import com.redhat.emergency.response.model.ResponderLocationHistory;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+public class LocationHistoryWriteBehindTest {
+
+    @Test
+    void testWriteLocationsTogether() {
+
+        List<Map<String, List<ResponderLocationHistory>>> writes = Collections.synchronizedList(new ArrayList<>());
+        LocationHistoryWriteBehind writeBehind = new LocationHistoryWriteBehind(10, 1, locations -> {
+            writes.add(locations);
+            return Uni.createFrom().nullItem();
+        });
+
+        writeBehind.append("mission1", List.of(new ResponderLocationHistory(30.1, -70.1, 1L))).await().indefinitely();
+        writeBehind.append("mission2", List.of(new ResponderLocationHistory(31.1, -71.1, 2L))).await().indefinitely();
+        writeBehind.append("mission1", List.of(new ResponderLocationHistory(30.2, -70.2, 3L))).await().indefinitely();
+        writeBehind.flushed().toCompletableFuture().join();
+
+        assertThat(writes.size(), equalTo(1));
+        assertThat(writes.get(0).keySet(), contains("mission1", "mission2"));
+        assertThat(writes.get(0).get("mission1").stream().map(ResponderLocationHistory::getTimestamp)
+                .collect(Collectors.toList()), contains(1L, 3L));
+        writeBehind.close().join();
+    }
+
+    @Test
+    void testFlushMission() {
+
+        List<Map<String, List<ResponderLocationHistory>>> writes = Collections.synchronizedList(new ArrayList<>());
+        LocationHistoryWriteBehind writeBehind = new LocationHistoryWriteBehind(60000, 1, locations -> {
+            writes.add(locations);
+            return Uni.createFrom().nullItem();
+        });
+
+        writeBehind.append("mission1", List.of(new ResponderLocationHistory(30.1, -70.1, 1L))).await().indefinitely();
+        writeBehind.append("mission2", List.of(new ResponderLocationHistory(31.1, -71.1, 2L))).await().indefinitely();
+        writeBehind.flush("mission1").await().indefinitely();
+
+        assertThat(writes.size(), equalTo(1));
+        assertThat(writes.get(0).keySet(), contains("mission1"));
+        writeBehind.close().join();
+        assertThat(writes.get(1).keySet(), contains("mission2"));
+    }
+
+    @Test
+    void testFailedWriteStopsWrites() {
+
+        List<Map<String, List<ResponderLocationHistory>>> writes = Collections.synchronizedList(new ArrayList<>());
+        LocationHistoryWriteBehind writeBehind = new LocationHistoryWriteBehind(60000, 1, locations -> {
+            writes.add(locations);
+            return locations.containsKey("mission1") ? Uni.createFrom().failure(new IllegalStateException("failed"))
+                    : Uni.createFrom().nullItem();
+        });
+
+        writeBehind.append("mission1", List.of(new ResponderLocationHistory(30.1, -70.1, 1L))).await().indefinitely();
+        assertThrows(CompletionException.class, () -> writeBehind.flush("mission1").await().indefinitely());
+
+        assertThrows(IllegalStateException.class, () -> writeBehind.append("mission2",
+                List.of(new ResponderLocationHistory(31.1, -71.1, 2L))).await().indefinitely());
+        assertThrows(CompletionException.class, () -> writeBehind.flushed().toCompletableFuture().join());
+        assertThat(writes.size(), equalTo(1));
+        assertThat(writeBehind.failure(), notNullValue());
+    }
+
+    @Test
+    void testRetryFailedWrite() {
+
+        List<Map<String, List<ResponderLocationHistory>>> writes = Collections.synchronizedList(new ArrayList<>());
+        LocationHistoryWriteBehind writeBehind = new LocationHistoryWriteBehind(10, 3, locations -> {
+            writes.add(locations);
+            return writes.size() == 1 ? Uni.createFrom().failure(new IllegalStateException("failed"))
+                    : Uni.createFrom().nullItem();
+        });
+
+        writeBehind.append("mission1", List.of(new ResponderLocationHistory(30.1, -70.1, 1L))).await().indefinitely();
+        writeBehind.flush("mission1").await().indefinitely();
+
+        // the second attempt succeeds, later locations are still written
+        writeBehind.append("mission2", List.of(new ResponderLocationHistory(31.1, -71.1, 2L))).await().indefinitely();
+        writeBehind.flushed().toCompletableFuture().join();
+        assertThat(writes.size(), equalTo(3));
+        assertThat(writes.get(1).keySet(), contains("mission1"));
+        assertThat(writes.get(2).keySet(), contains("mission2"));
+        assertThat(writeBehind.failure(), nullValue());
+        writeBehind.close().join();
+    }
+}
@@ -0,0 +1,79 @@
+package com.redhat.emergency.response.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import com.redhat.emergency.response.model.ResponderLocationStatus;
+import org.junit.jupiter.api.Test;
+
+public class LocationUpdateTest {
+
+    @Test
+    void testDecode() throws IOException {
+
+        String payload = "{\"responderId\":\"64\",\"missionId\":\"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\"," +
+                "\"incidentId\":\"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\",\"status\":\"DROPPED\"," +
+                "\"lat\":34.1701,\"lon\":-77,\"extra\":{\"nested\":[1,2]},\"human\":true,\"continue\":false}";
+
+        LocationUpdate locationUpdate = LocationUpdate.decode(payload);
+
+        assertThat(locationUpdate, notNullValue());
+        assertThat(locationUpdate.key(), equalTo("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"));
+        assertThat(locationUpdate.getMissionId(), equalTo("f5a9bc5e-408c-4f86-8592-6f67bb73c5fd"));
+        assertThat(locationUpdate.getStatus(), equalTo(ResponderLocationStatus.DROPPED));
+        assertThat(locationUpdate.isStatusChange(), equalTo(true));
+        assertThat(locationUpdate.getLat(), equalTo(34.1701));
+        assertThat(locationUpdate.getLon(), equalTo(-77.0));
+        assertThat(locationUpdate.isHuman(), equalTo(true));
+    }
+
+    @Test
+    void testDecodeUnknownStatusIsMove() throws IOException {
+
+        String payload = "{\"responderId\":\"64\",\"missionId\":\"m\",\"incidentId\":\"i\",\"status\":\"WAITING\"," +
+                "\"lat\":34.1701,\"lon\":-77.9482,\"human\":false,\"continue\":true}";
+
+        LocationUpdate locationUpdate = LocationUpdate.decode(payload);
+
+        assertThat(locationUpdate.getStatus(), equalTo(ResponderLocationStatus.MOVING));
+        assertThat(locationUpdate.isStatusChange(), equalTo(false));
+    }
+
+    @Test
+    void testDecodeMissingField() throws IOException {
+
+        String payload = "{\"responderId\":\"64\",\"missionId\":\"m\",\"incidentId\":\"i\",\"status\":\"MOVING\"," +
+                "\"lat\":34.1701,\"human\":false,\"continue\":true}";
+
+        assertThat(LocationUpdate.decode(payload), nullValue());
+    }
+
+    @Test
+    void testDecodeBlankField() throws IOException {
+
+        String payload = "{\"responderId\":\" \",\"missionId\":\"m\",\"incidentId\":\"i\",\"status\":\"MOVING\"," +
+                "\"lat\":34.1701,\"lon\":-77.9482,\"human\":false,\"continue\":true}";
+
+        assertThat(LocationUpdate.decode(payload), nullValue());
+    }
+
+    @Test
+    void testDecodeWrongType() throws IOException {
+
+        String payload = "{\"responderId\":\"64\",\"missionId\":\"m\",\"incidentId\":\"i\",\"status\":\"MOVING\"," +
+                "\"lat\":\"34.1701\",\"lon\":-77.9482,\"human\":false,\"continue\":true}";
+
+        assertThat(LocationUpdate.decode(payload), nullValue());
+    }
+
+    @Test
+    void testDecodeNotJson() {
+
+        assertThrows(IOException.class, () -> LocationUpdate.decode("{\"responderId\":"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.redhat.emergency.response.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+public class MessageBatcherTest {
+
+    @Test
+    void testBatchBySize() {
+
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        MessageBatcher<Integer> batcher = new MessageBatcher<>(3, 60000, batch -> {
+            batches.add(batch);
+            return Uni.createFrom().nullItem();
+        });
+
+        for (int i = 0; i < 7; i++) {
+            batcher.add(i).await().indefinitely();
+        }
+        batcher.close().join();
+
+        assertThat(batches.size(), equalTo(3));
+        assertThat(batches.get(0), contains(0, 1, 2));
+        assertThat(batches.get(1), contains(3, 4, 5));
+        assertThat(batches.get(2), contains(6));
+    }
+
+    @Test
+    void testBatchByWindow() throws InterruptedException {
+
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        MessageBatcher<Integer> batcher = new MessageBatcher<>(100, 10, batch -> {
+            batches.add(batch);
+            return Uni.createFrom().nullItem();
+        });
+
+        batcher.add(1).await().indefinitely();
+        batcher.add(2).await().indefinitely();
+        Thread.sleep(200);
+
+        assertThat(batches.size(), equalTo(1));
+        assertThat(batches.get(0), contains(1, 2));
+        batcher.close().join();
+    }
+
+    @Test
+    void testFailedBatchStopsProcessing() {
+
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        MessageBatcher<Integer> batcher = new MessageBatcher<>(1, 60000, batch -> {
+            if (batch.contains(0)) {
+                throw new IllegalStateException("failure");
+            }
+            batches.add(batch);
+            return Uni.createFrom().nullItem();
+        });
+
+        batcher.add(0).await().indefinitely();
+        batcher.close().join();
+
+        assertThrows(IllegalStateException.class, () -> batcher.add(1).await().indefinitely());
+        assertThat(batches.isEmpty(), equalTo(true));
+    }
+}
@@ -4,15 +4,17 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
-import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.map.RoutePlanner;
@@ -85,22 +87,23 @@ public class MessageCommandSourceTest {
         when(routePlanner.getDirections(any(Location.class), any(Location.class), any(Location.class)))
                 .thenReturn(Arrays.asList(missionStep1, missionStep2));
         when(eventSink.missionStarted(any(Mission.class))).thenReturn(Uni.createFrom().emitter(emitter -> emitter.complete(null)));
+        when(repository.addAsync(any(Mission.class))).thenAnswer(invocation -> Uni.createFrom().item(invocation.getArgument(0)));
 
         Uni<CompletionStage<Void>> uni = missionCommandSource.process(toRecord("incident123", payload));
         uni.await().indefinitely();
 
         assertThat(messageAck, equalTo(true));
-        verify(repository).add(missionCaptor.capture());
+        verify(repository).addAsync(missionCaptor.capture());
         Mission mission = missionCaptor.getValue();
         assertThat(mission, notNullValue());
         assertThat(mission.getIncidentId(), equalTo("incident123"));
-        assertThat(mission.getIncidentLat(), equalTo(new BigDecimal("30.12345")));
-        assertThat(mission.getIncidentLong(), equalTo(new BigDecimal("-70.98765")));
+        assertThat(mission.getIncidentLat(), equalTo(30.12345));
+        assertThat(mission.getIncidentLong(), equalTo(-70.98765));
         assertThat(mission.getResponderId(), equalTo("responder123"));
-        assertThat(mission.getResponderStartLat(), equalTo(new BigDecimal("40.12345")));
-        assertThat(mission.getResponderStartLong(), equalTo(new BigDecimal("-80.98765")));
-        assertThat(mission.getDestinationLat(), equalTo(new BigDecimal("50.12345")));
-        assertThat(mission.getDestinationLong(), equalTo(new BigDecimal("-90.98765")));
+        assertThat(mission.getResponderStartLat(), equalTo(40.12345));
+        assertThat(mission.getResponderStartLong(), equalTo(-80.98765));
+        assertThat(mission.getDestinationLat(), equalTo(50.12345));
+        assertThat(mission.getDestinationLong(), equalTo(-90.98765));
         assertThat(mission.getSteps().size(), equalTo(2));
         assertThat(mission.getStatus(), equalTo(MissionStatus.CREATED.name()));
         verify(routePlanner).getDirections(locationCaptor.capture(),locationCaptor.capture(), locationCaptor.capture());
@@ -110,27 +113,88 @@ public class MessageCommandSourceTest {
         assertThat(location1, notNullValue());
         assertThat(location2, notNullValue());
         assertThat(location3, notNullValue());
-        assertThat(location1.getLatitude(), equalTo(new BigDecimal("40.12345")));
-        assertThat(location1.getLongitude(), equalTo(new BigDecimal("-80.98765")));
-        assertThat(location2.getLatitude(), equalTo(new BigDecimal("50.12345")));
-        assertThat(location2.getLongitude(), equalTo(new BigDecimal("-90.98765")));
-        assertThat(location3.getLatitude(), equalTo(new BigDecimal("30.12345")));
-        assertThat(location3.getLongitude(), equalTo(new BigDecimal("-70.98765")));
+        assertThat(location1.getLatitude(), equalTo(40.12345));
+        assertThat(location1.getLongitude(), equalTo(-80.98765));
+        assertThat(location2.getLatitude(), equalTo(50.12345));
+        assertThat(location2.getLongitude(), equalTo(-90.98765));
+        assertThat(location3.getLatitude(), equalTo(30.12345));
+        assertThat(location3.getLongitude(), equalTo(-70.98765));
         verify(eventSink).missionStarted(missionCaptor.capture());
         mission = missionCaptor.getValue();
         assertThat(mission, notNullValue());
         assertThat(mission.getIncidentId(), equalTo("incident123"));
-        assertThat(mission.getIncidentLat(), equalTo(new BigDecimal("30.12345")));
-        assertThat(mission.getIncidentLong(), equalTo(new BigDecimal("-70.98765")));
+        assertThat(mission.getIncidentLat(), equalTo(30.12345));
+        assertThat(mission.getIncidentLong(), equalTo(-70.98765));
         assertThat(mission.getResponderId(), equalTo("responder123"));
-        assertThat(mission.getResponderStartLat(), equalTo(new BigDecimal("40.12345")));
-        assertThat(mission.getResponderStartLong(), equalTo(new BigDecimal("-80.98765")));
-        assertThat(mission.getDestinationLat(), equalTo(new BigDecimal("50.12345")));
-        assertThat(mission.getDestinationLong(), equalTo(new BigDecimal("-90.98765")));
+        assertThat(mission.getResponderStartLat(), equalTo(40.12345));
+        assertThat(mission.getResponderStartLong(), equalTo(-80.98765));
+        assertThat(mission.getDestinationLat(), equalTo(50.12345));
+        assertThat(mission.getDestinationLong(), equalTo(-90.98765));
         assertThat(mission.getSteps().size(), equalTo(2));
         assertThat(mission.getStatus(), equalTo(MissionStatus.CREATED.name()));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProcessMessageAsyncRoute() {
+
+        String payload = "{\"id\":\"91cf5e82-8135-476d-ade4-5fe00dca2cc6\",\"messageType\":\"CreateMissionCommand\","
+                + "\"invokingService\":\"IncidentProcessService\",\"timestamp\":1593363522344,\"body\": "
+                + "{\"incidentId\":\"incident123\",\"responderId\":\"responder123\",\"responderStartLat\":\"40.12345\","
+                + "\"responderStartLong\":\"-80.98765\",\"incidentLat\":\"30.12345\",\"incidentLong\":\"-70.98765\","
+                + "\"destinationLat\":\"50.12345\",\"destinationLong\":\"-90.98765\",\"processId\":\"0\"}}";
+
+        Mission stored = new Mission();
+        when(routePlanner.isAsync()).thenReturn(true);
+        when(routePlanner.getDirectionsAsync(any(Location.class), any(Location.class), any(Location.class)))
+                .thenReturn(Uni.createFrom().item(Arrays.asList(new MissionStep(), new MissionStep())));
+        when(eventSink.missionStarted(any(Mission.class))).thenReturn(Uni.createFrom().nullItem());
+        when(eventSink.missionRouteReady(any(Mission.class))).thenReturn(Uni.createFrom().nullItem());
+        when(repository.addAsync(any(Mission.class))).thenAnswer(invocation -> Uni.createFrom().item(invocation.getArgument(0)));
+        when(repository.updateAsync(eq("incident123:responder123"), any(Function.class)))
+                .thenAnswer(invocation -> Uni.createFrom().item(((Function<Mission, Mission>) invocation.getArgument(1)).apply(stored)));
+
+        missionCommandSource.process(toRecord("incident123", payload)).await().indefinitely();
+
+        assertThat(messageAck, equalTo(true));
+        verify(routePlanner, never()).getDirections(any(Location.class), any(Location.class), any(Location.class));
+        verify(eventSink).missionStarted(missionCaptor.capture());
+        assertThat(missionCaptor.getValue().getSteps().size(), equalTo(0));
+        assertThat(missionCaptor.getValue().getStatus(), equalTo(MissionStatus.CREATED.name()));
+        verify(eventSink, timeout(1000)).missionRouteReady(missionCaptor.capture());
+        assertThat(missionCaptor.getValue().getSteps().size(), equalTo(2));
+    }
+
+    @Test
+    void testProcessMessageBodyBeforeMessageType() {
+
+        String payload = "{\"id\":\"91cf5e82-8135-476d-ade4-5fe00dca2cc6\",\"body\": "
+                + "{\"incidentId\":\"incident123\",\"responderId\":\"responder123\",\"responderStartLat\":\"40.12345\","
+                + "\"responderStartLong\":\"-80.98765\",\"incidentLat\":\"30.12345\",\"incidentLong\":\"-70.98765\","
+                + "\"destinationLat\":\"50.12345\",\"destinationLong\":\"-90.98765\",\"processId\":\"0\"},"
+                + "\"invokingService\":\"IncidentProcessService\",\"timestamp\":1593363522344,\"messageType\":\"CreateMissionCommand\"}";
+
+        when(routePlanner.getDirections(any(Location.class), any(Location.class), any(Location.class))).thenReturn(Arrays.asList());
+        when(eventSink.missionStarted(any(Mission.class))).thenReturn(Uni.createFrom().nullItem());
+        when(repository.addAsync(any(Mission.class))).thenAnswer(invocation -> Uni.createFrom().item(invocation.getArgument(0)));
+
+        missionCommandSource.process(toRecord("incident123", payload)).await().indefinitely();
+
+        assertThat(messageAck, equalTo(true));
+        verify(repository).addAsync(missionCaptor.capture());
+        assertThat(missionCaptor.getValue().getKey(), equalTo("incident123:responder123"));
+        assertThat(missionCaptor.getValue().getResponderStartLat(), equalTo(40.12345));
+    }
+
+    @Test
+    void testProcessMessageNotJson() {
+
+        missionCommandSource.process(toRecord("incident123", "not json")).await().indefinitely();
+
+        assertThat(messageAck, equalTo(true));
+        verify(repository, never()).addAsync(any(Mission.class));
+    }
+
     @Test
     void testProcessMessageBadMessageType() throws ExecutionException, InterruptedException {
 
@@ -144,7 +208,7 @@ public class MessageCommandSourceTest {
         uni.await().indefinitely();
 
         assertThat(messageAck, equalTo(true));
-        verify(repository, never()).add(any(Mission.class));
+        verify(repository, never()).addAsync(any(Mission.class));
         verify(routePlanner, never()).getDirections(any(Location.class), any(Location.class), any(Location.class));
         verify(eventSink, never()).missionStarted(any(Mission.class));
     }
@@ -162,7 +226,7 @@ public class MessageCommandSourceTest {
         uni.await().indefinitely();
 
         assertThat(messageAck, equalTo(true));
-        verify(repository, never()).add(any(Mission.class));
+        verify(repository, never()).addAsync(any(Mission.class));
         verify(routePlanner, never()).getDirections(any(Location.class), any(Location.class), any(Location.class));
         verify(eventSink, never()).missionStarted(any(Mission.class));
     }
@@ -3,14 +3,16 @@ package com.redhat.emergency.response.source;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
-import java.math.BigDecimal;
-import java.util.Optional;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.model.Mission;
@@ -34,6 +36,8 @@ import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 
 @QuarkusTest
 public class ResponderUpdateLocationSourceTest {
@@ -47,6 +51,9 @@ public class ResponderUpdateLocationSourceTest {
     @InjectMock
     EventSink eventSink;
 
+    @Captor
+    ArgumentCaptor<ResponderLocationHistory> locationCaptor;
+
     private boolean messageAck = false;
 
     @BeforeEach
@@ -69,29 +76,46 @@ public class ResponderUpdateLocationSourceTest {
                 "  \"continue\": true\n" +
                 "}";
 
-        String m = "{\"id\":\"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\",\"incidentId\":\"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\"," +
-                "\"responderId\":\"64\",\"responderStartLat\":\"40.12345\",\"responderStartLong\":\"-80.98765\"," +
-                "\"incidentLat\":\"30.12345\",\"incidentLong\":\"-70.98765\"," +
-                "\"destinationLat\":\"50.12345\",\"destinationLong\":\"-90.98765\"," +
-                "\"responderLocationHistory\":[{\"lat\":30.78452,\"lon\":-70.85252,\"timestamp\":1593872667576}]," +
-                "\"steps\":[],\"status\":\"CREATED\"}";
-        Mission mission = Json.decodeValue(m, Mission.class);
-
-        when(repository.get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64")).thenReturn(Optional.of(mission));
+        when(repository.appendLocationAsync(any(), any(), anyBoolean())).thenReturn(Uni.createFrom().nullItem());
 
         Uni<CompletionStage<Void>> uni = source.process(toRecord("incident12364", payload));
         uni.await().indefinitely();
 
         assertThat(messageAck, equalTo(true));
-        assertThat(mission.getResponderLocationHistory().size(), equalTo(2));
-        ResponderLocationHistory rlh = mission.getResponderLocationHistory().get(1);
-        assertThat(rlh.getLat(), equalTo(new BigDecimal("34.1701")));
-        assertThat(rlh.getLon(), equalTo(new BigDecimal("-77.9482")));
-        verify(repository).get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64");
+        verify(repository).appendLocationAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), locationCaptor.capture(), eq(false));
+        ResponderLocationHistory rlh = locationCaptor.getValue();
+        assertThat(rlh.getLat(), equalTo(34.1701));
+        assertThat(rlh.getLon(), equalTo(-77.9482));
+        verify(repository, never()).getAsync(any(String.class));
         verify(eventSink, never()).missionPickedUp(any());
         verify(eventSink, never()).missionCompleted(any());
-        verify(eventSink, never()).responderCommand(any(), any(), any(), any());
-        verify(repository).add(mission);
+        verify(eventSink, never()).responderCommand(any(), anyDouble(), anyDouble(), any());
+        verify(repository, never()).add(any());
+    }
+
+    @Test
+    void testProcessMessageMissionNotFound() {
+
+        String payload = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"missionId\": \"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\",\n" +
+                "  \"incidentId\": \"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\",\n" +
+                "  \"status\": \"MOVING\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482,\n" +
+                "  \"human\": false,\n" +
+                "  \"continue\": true\n" +
+                "}";
+
+        // the repository ignores the locations of a mission without history
+        when(repository.appendLocationAsync(any(), any(), anyBoolean())).thenReturn(Uni.createFrom().nullItem());
+
+        Uni<CompletionStage<Void>> uni = source.process(toRecord("incident12364", payload));
+        uni.await().indefinitely();
+
+        assertThat(messageAck, equalTo(true));
+        verify(repository, never()).existsAsync(any());
+        verify(repository, never()).add(any());
     }
 
     @Test
@@ -116,7 +140,9 @@ public class ResponderUpdateLocationSourceTest {
                 "\"steps\":[],\"status\":\"CREATED\"}";
         Mission mission = Json.decodeValue(m, Mission.class);
 
-        when(repository.get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64")).thenReturn(Optional.of(mission));
+        when(repository.updateAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), any()))
+                .thenAnswer(invocation -> Uni.createFrom().item(invocation.<Function<Mission, Mission>>getArgument(1).apply(mission)));
+        when(repository.appendLocationAsync(any(), any(), anyBoolean())).thenReturn(Uni.createFrom().nullItem());
         when(eventSink.missionPickedUp(any(Mission.class))).thenReturn(Uni.createFrom().emitter(emitter -> emitter.complete(null)));
 
         Uni<CompletionStage<Void>> uni = source.process(toRecord("incident12364", payload));
@@ -125,13 +151,15 @@ public class ResponderUpdateLocationSourceTest {
         assertThat(messageAck, equalTo(true));
         assertThat(mission.getResponderLocationHistory().size(), equalTo(2));
         ResponderLocationHistory rlh = mission.getResponderLocationHistory().get(1);
-        assertThat(rlh.getLat(), equalTo(new BigDecimal("34.1701")));
-        assertThat(rlh.getLon(), equalTo(new BigDecimal("-77.9482")));
-        verify(repository).get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64");
+        assertThat(rlh.getLat(), equalTo(34.1701));
+        assertThat(rlh.getLon(), equalTo(-77.9482));
+        assertThat(mission.getStatus(), equalTo("UPDATED"));
+        verify(repository).updateAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), any());
+        verify(repository).appendLocationAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), any(ResponderLocationHistory.class), eq(true));
         verify(eventSink).missionPickedUp(mission);
         verify(eventSink, never()).missionCompleted(any());
-        verify(eventSink, never()).responderCommand(any(), any(), any(), any());
-        verify(repository).add(mission);
+        verify(eventSink, never()).responderCommand(any(), anyDouble(), anyDouble(), any());
+        verify(repository, never()).add(any());
     }
 
     @Test
@@ -156,9 +184,11 @@ public class ResponderUpdateLocationSourceTest {
                 "\"steps\":[],\"status\":\"CREATED\"}";
         Mission mission = Json.decodeValue(m, Mission.class);
 
-        when(repository.get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64")).thenReturn(Optional.of(mission));
+        when(repository.updateAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), any()))
+                .thenAnswer(invocation -> Uni.createFrom().item(invocation.<Function<Mission, Mission>>getArgument(1).apply(mission)));
+        when(repository.appendLocationAsync(any(), any(), anyBoolean())).thenReturn(Uni.createFrom().nullItem());
         when(eventSink.missionCompleted(any(Mission.class))).thenReturn(Uni.createFrom().emitter(emitter -> emitter.complete(null)));
-        when(eventSink.responderCommand(any(Mission.class), any(BigDecimal.class), any(BigDecimal.class), any(Boolean.class)))
+        when(eventSink.responderCommand(any(Mission.class), anyDouble(), anyDouble(), any(Boolean.class)))
                 .thenReturn(Uni.createFrom().emitter(emitter -> emitter.complete(null)));
 
         Uni<CompletionStage<Void>> uni = source.process(toRecord("incident12364", payload));
@@ -167,13 +197,16 @@ public class ResponderUpdateLocationSourceTest {
         assertThat(messageAck, equalTo(true));
         assertThat(mission.getResponderLocationHistory().size(), equalTo(2));
         ResponderLocationHistory rlh = mission.getResponderLocationHistory().get(1);
-        assertThat(rlh.getLat(), equalTo(new BigDecimal("34.1701")));
-        assertThat(rlh.getLon(), equalTo(new BigDecimal("-77.9482")));
-        verify(repository).get("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64");
+        assertThat(rlh.getLat(), equalTo(34.1701));
+        assertThat(rlh.getLon(), equalTo(-77.9482));
+        assertThat(mission.getStatus(), equalTo("COMPLETED"));
+        verify(repository).updateAsync(eq("5d9b2d3a-136f-414f-96ba-1b2a445fee5d:64"), any());
         verify(eventSink, never()).missionPickedUp(any());
+        // the history of a completed mission is kept in the mission entry
+        verify(repository, never()).appendLocationAsync(any(), any(), anyBoolean());
         verify(eventSink).missionCompleted(mission);
-        verify(eventSink).responderCommand(mission, new BigDecimal("34.1701"), new BigDecimal("-77.9482"), false);
-        verify(repository).add(mission);
+        verify(eventSink).responderCommand(mission, 34.1701, -77.9482, false);
+        verify(repository, never()).add(any());
     }
 
     @Test
@@ -193,7 +226,9 @@ public class ResponderUpdateLocationSourceTest {
         uni.await().indefinitely();
 
         assertThat(messageAck, equalTo(true));
-        verify(repository, never()).get(any(String.class));
+        verify(repository, never()).getAsync(any(String.class));
+        verify(repository, never()).updateAsync(any(), any());
+        verify(repository, never()).appendLocationAsync(any(), any(), anyBoolean());
         verify(eventSink, never()).missionPickedUp(any());
         verify(eventSink, never()).missionCompleted(any());
         verify(repository, never()).add(any());